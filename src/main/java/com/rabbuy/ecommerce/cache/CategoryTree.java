@@ -0,0 +1,238 @@
+package com.rabbuy.ecommerce.cache;
+
+import com.rabbuy.ecommerce.dao.CategoryDao;
+import com.rabbuy.ecommerce.dao.SubCategoryDao;
+import com.rabbuy.ecommerce.entity.Category;
+import com.rabbuy.ecommerce.entity.SubCategory;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * 整个分类树 (一级分类 + 二级分类) 的只读内存快照
+ * - 读操作直接读取当前快照，不加锁也不访问数据库
+ * - 分类的新增 / 修改 / 删除复制出新快照后整体替换 (写时复制)；事务回滚时丢弃快照，下次读取时从数据库重新加载
+ * - 超过重新加载间隔后也从数据库重新加载，兜底其他途径 (例如其他实例) 的修改；只有一个线程加载，其他线程继续读取旧快照
+ * 节点保持数据库的加载顺序
+ */
+@ApplicationScoped
+public class CategoryTree {
+
+    private static final Logger logger = LoggerFactory.getLogger(CategoryTree.class);
+
+    public record CategoryNode(String id, String name, String status, List<String> images) {
+        public boolean isActive() {
+            return "1".equals(status);
+        }
+
+        static CategoryNode fromEntity(Category entity) {
+            return new CategoryNode(entity.getCategoryId(), entity.getCategoryName(), entity.getStatus(),
+                    entity.getCategoryImages() != null ? List.copyOf(entity.getCategoryImages()) : List.of());
+        }
+    }
+
+    public record SubCategoryNode(String id, String name, String status, String image, String categoryId) {
+        public boolean isActive() {
+            return "1".equals(status);
+        }
+
+        static SubCategoryNode fromEntity(SubCategory entity) {
+            return new SubCategoryNode(entity.getSubCateId(), entity.getSubCateName(), entity.getStatus(),
+                    entity.getSubCateImage(), entity.getCategory() != null ? entity.getCategory().getCategoryId() : null);
+        }
+    }
+
+    /**
+     * 不可变快照：ID -> 节点，以及各个分类下的二级分类列表
+     */
+    private record Snapshot(Map<String, CategoryNode> categories,
+                            Map<String, SubCategoryNode> subCategories,
+                            Map<String, List<SubCategoryNode>> childrenByCategory,
+                            List<CategoryNode> activeCategories,
+                            List<SubCategoryNode> activeSubCategories,
+                            long loadedAt) {
+
+        static Snapshot of(Collection<CategoryNode> categoryNodes, Collection<SubCategoryNode> subCategoryNodes, long loadedAt) {
+            Map<String, CategoryNode> categories = new LinkedHashMap<>();
+            List<CategoryNode> activeCategories = new ArrayList<>();
+            for (CategoryNode node : categoryNodes) {
+                categories.put(node.id(), node);
+                if (node.isActive()) activeCategories.add(node);
+            }
+
+            Map<String, SubCategoryNode> subCategories = new LinkedHashMap<>();
+            Map<String, List<SubCategoryNode>> children = new LinkedHashMap<>();
+            List<SubCategoryNode> activeSubCategories = new ArrayList<>();
+            for (SubCategoryNode node : subCategoryNodes) {
+                subCategories.put(node.id(), node);
+                children.computeIfAbsent(node.categoryId(), k -> new ArrayList<>()).add(node);
+                if (node.isActive()) activeSubCategories.add(node);
+            }
+            Map<String, List<SubCategoryNode>> childrenByCategory = new LinkedHashMap<>();
+            children.forEach((categoryId, list) -> childrenByCategory.put(categoryId, List.copyOf(list)));
+
+            return new Snapshot(
+                    Collections.unmodifiableMap(categories),
+                    Collections.unmodifiableMap(subCategories),
+                    Collections.unmodifiableMap(childrenByCategory),
+                    List.copyOf(activeCategories),
+                    List.copyOf(activeSubCategories),
+                    loadedAt
+            );
+        }
+    }
+
+    @Inject
+    private CategoryDao categoryDao;
+
+    @Inject
+    private SubCategoryDao subCategoryDao;
+
+    @Inject
+    private TransactionCallbacks transactionCallbacks;
+
+    @Inject
+    @ConfigProperty(name = "category.tree.reload-interval-minutes", defaultValue = "10")
+    private long reloadIntervalMinutes;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final Object loadLock = new Object();
+    private final AtomicBoolean reloading = new AtomicBoolean(false);
+
+    // --- 读操作 ---
+
+    public Optional<CategoryNode> category(String id) {
+        return id == null ? Optional.empty() : Optional.ofNullable(current().categories().get(id));
+    }
+
+    public Optional<SubCategoryNode> subCategory(String id) {
+        return id == null ? Optional.empty() : Optional.ofNullable(current().subCategories().get(id));
+    }
+
+    public boolean subCategoryExists(String id) {
+        return subCategory(id).isPresent();
+    }
+
+    /**
+     * 所有二级分类 (含禁用的)
+     */
+    public Collection<SubCategoryNode> allSubCategories() {
+        return current().subCategories().values();
+    }
+
+    public List<CategoryNode> activeCategories() {
+        return current().activeCategories();
+    }
+
+    public List<SubCategoryNode> activeSubCategories() {
+        return current().activeSubCategories();
+    }
+
+    /**
+     * 某个一级分类下启用的二级分类
+     */
+    public List<SubCategoryNode> activeChildren(String categoryId) {
+        List<SubCategoryNode> children = current().childrenByCategory().getOrDefault(categoryId, List.of());
+        return children.stream().filter(SubCategoryNode::isActive).toList();
+    }
+
+    // --- 写操作 (在修改分类的事务中调用) ---
+
+    public void putCategory(Category category) {
+        CategoryNode node = CategoryNode.fromEntity(category);
+        modify(s -> {
+            Map<String, CategoryNode> categories = new LinkedHashMap<>(s.categories());
+            categories.put(node.id(), node);
+            return Snapshot.of(categories.values(), s.subCategories().values(), s.loadedAt());
+        });
+    }
+
+    public void removeCategory(String categoryId) {
+        modify(s -> {
+            Map<String, CategoryNode> categories = new LinkedHashMap<>(s.categories());
+            categories.remove(categoryId);
+            return Snapshot.of(categories.values(), s.subCategories().values(), s.loadedAt());
+        });
+    }
+
+    public void putSubCategory(SubCategory subCategory) {
+        SubCategoryNode node = SubCategoryNode.fromEntity(subCategory);
+        modify(s -> {
+            Map<String, SubCategoryNode> subCategories = new LinkedHashMap<>(s.subCategories());
+            subCategories.put(node.id(), node);
+            return Snapshot.of(s.categories().values(), subCategories.values(), s.loadedAt());
+        });
+    }
+
+    public void removeSubCategory(String subCategoryId) {
+        modify(s -> {
+            Map<String, SubCategoryNode> subCategories = new LinkedHashMap<>(s.subCategories());
+            subCategories.remove(subCategoryId);
+            return Snapshot.of(s.categories().values(), subCategories.values(), s.loadedAt());
+        });
+    }
+
+    private void modify(UnaryOperator<Snapshot> change) {
+        // 尚未加载时无需修改，第一次读取时会从数据库加载最新数据
+        snapshot.getAndUpdate(s -> s == null ? null : change.apply(s));
+        // 快照在事务提交前就已替换；事务回滚时丢弃快照，下次读取时重新加载
+        transactionCallbacks.afterRollback(() -> snapshot.set(null));
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot.get();
+        if (current == null) {
+            // 还没有快照 (第一次读取或事务回滚后)：只能等待同一次加载完成
+            synchronized (loadLock) {
+                Snapshot latest = snapshot.get();
+                return latest != null ? latest : reload(null);
+            }
+        }
+        if (System.currentTimeMillis() - current.loadedAt() < reloadIntervalMinutes * 60_000) {
+            return current;
+        }
+        // 已过期：由抢到标记的线程重新加载，其他线程继续使用旧快照，不等待
+        if (!reloading.compareAndSet(false, true)) {
+            return current;
+        }
+        try {
+            return reload(current);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to reload category tree, keeping the stale snapshot: {}", e.getMessage(), e);
+            return current;
+        } finally {
+            reloading.set(false);
+        }
+    }
+
+    /**
+     * 从数据库加载并替换 expected；加载期间发生了修改时以修改后的快照为准
+     */
+    private Snapshot reload(Snapshot expected) {
+        Snapshot loaded = load();
+        if (snapshot.compareAndSet(expected, loaded)) {
+            return loaded;
+        }
+        Snapshot modified = snapshot.get();
+        return modified != null ? modified : loaded;
+    }
+
+    private Snapshot load() {
+        List<CategoryNode> categories = categoryDao.findAll().stream().map(CategoryNode::fromEntity).toList();
+        List<SubCategoryNode> subCategories = subCategoryDao.findAll().stream().map(SubCategoryNode::fromEntity).toList();
+        return Snapshot.of(categories, subCategories, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,48 @@
+package com.rabbuy.ecommerce.cache;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+
+/**
+ * 分页查询的总数缓存：同一过滤条件翻页时只执行一次 COUNT
+ * 键 = 数据域 + 规范化的过滤条件 (COUNT 语句 + 按名称排序的参数)
+ * 写操作按数据域整体失效 (见各 DAO 的 save / update / delete)：立即失效一次，事务结束后再失效一次
+ */
+@ApplicationScoped
+public class CountCache {
+
+    public static final String PRODUCT = "product";
+    public static final String COMMENT = "comment";
+    public static final String CATEGORY = "category";
+    public static final String SUB_CATEGORY = "subCategory";
+
+    private record Key(String domain, String predicate) {}
+
+    // 总数允许短暂不准确；TTL 兜底其他实例上的写操作
+    private final TtlCache<Key, Long> cache = new TtlCache<>(Duration.ofSeconds(60), 10_000);
+
+    @Inject
+    private TransactionCallbacks transactionCallbacks;
+
+    /**
+     * 返回缓存的总数；未命中时调用 counter 执行 COUNT 查询
+     */
+    public long get(String domain, String countJpql, Map<String, ?> parameters, LongSupplier counter) {
+        String predicate = parameters == null || parameters.isEmpty()
+                ? countJpql
+                : countJpql + " " + new TreeMap<>(parameters);
+        return cache.get(new Key(domain, predicate), key -> counter.getAsLong());
+    }
+
+    /**
+     * 丢弃某个数据域的所有总数 (见 TransactionCallbacks.evictNowAndAfterCompletion)
+     */
+    public void invalidate(String domain) {
+        transactionCallbacks.evictNowAndAfterCompletion(() -> cache.invalidateIf(key -> key.domain().equals(domain)));
+    }
+}
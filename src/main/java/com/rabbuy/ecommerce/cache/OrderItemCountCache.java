@@ -0,0 +1,36 @@
+package com.rabbuy.ecommerce.cache;
+
+import com.rabbuy.ecommerce.dto.OrderItemStatusCounts;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * 按用户缓存订单项的状态计数 (首页角标、未读通知)
+ * 任何修改订单项状态或已读标记的操作都必须调用 invalidate
+ */
+@ApplicationScoped
+public class OrderItemCountCache {
+
+    // TTL 只是兜底 (例如其他实例上的写操作)，正常情况下由写操作主动失效
+    private final TtlCache<String, OrderItemStatusCounts> cache = new TtlCache<>(Duration.ofSeconds(30), 50_000);
+
+    @Inject
+    private TransactionCallbacks transactionCallbacks;
+
+    public OrderItemStatusCounts get(String userId, Function<String, OrderItemStatusCounts> loader) {
+        return cache.get(userId, loader);
+    }
+
+    /**
+     * 用户的订单项被修改后调用 (见 TransactionCallbacks.evictNowAndAfterCompletion)
+     */
+    public void invalidate(String userId) {
+        if (userId == null) {
+            return;
+        }
+        transactionCallbacks.evictNowAndAfterCompletion(() -> cache.invalidate(userId));
+    }
+}
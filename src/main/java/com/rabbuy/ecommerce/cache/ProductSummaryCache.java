@@ -0,0 +1,72 @@
+package com.rabbuy.ecommerce.cache;
+
+import com.rabbuy.ecommerce.dto.ProductSummary;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 按商品 ID 缓存商品摘要 (价格、首图、上架状态、库存)，供购物车等频繁轮询的接口共享
+ * TTL 很短，价格、库存和状态的变化最多延迟几秒可见；修改商品或库存的操作会主动失效
+ */
+@ApplicationScoped
+public class ProductSummaryCache {
+
+    private final TtlCache<String, ProductSummary> cache = new TtlCache<>(Duration.ofSeconds(10), 50_000);
+
+    @Inject
+    private TransactionCallbacks transactionCallbacks;
+
+    /**
+     * 批量读取：缓存中没有的 ID 交给 loader 一次性加载 (一条 IN 查询)
+     * @return 商品 ID -> 摘要；不存在的商品不出现在结果中
+     */
+    public Map<String, ProductSummary> getAll(Collection<String> productIds,
+                                              Function<Collection<String>, List<ProductSummary>> loader) {
+        Map<String, ProductSummary> result = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String productId : new LinkedHashSet<>(productIds)) {
+            ProductSummary summary = cache.getIfPresent(productId);
+            if (summary != null) {
+                result.put(productId, summary);
+            } else {
+                missing.add(productId);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            for (ProductSummary summary : loader.apply(missing)) {
+                cache.put(summary.productId(), summary);
+                result.put(summary.productId(), summary);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 放入其他查询顺带取得的摘要 (例如购物车与商品的 JOIN)
+     */
+    public void putAll(Collection<ProductSummary> summaries) {
+        for (ProductSummary summary : summaries) {
+            cache.put(summary.productId(), summary);
+        }
+    }
+
+    /**
+     * 商品被修改后调用 (见 TransactionCallbacks.evictNowAndAfterCompletion)
+     */
+    public void invalidate(String productId) {
+        if (productId == null) {
+            return;
+        }
+        transactionCallbacks.evictNowAndAfterCompletion(() -> cache.invalidate(productId));
+    }
+}
@@ -0,0 +1,97 @@
+package com.rabbuy.ecommerce.cache;
+
+import com.rabbuy.ecommerce.dto.ApiResponseDto;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.json.bind.JsonbException;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * 公开目录接口的响应缓存：保存已经序列化好的 UTF-8 响应体 ({"code":1,"data":...}) 及其内容哈希
+ * 命中时既不访问数据库也不做 JSON 序列化，客户端带 If-None-Match 且未变化时直接返回 304
+ * 对应的写操作必须调用 invalidate / invalidatePrefix
+ */
+@ApplicationScoped
+public class ResponseCache {
+
+    public static final String PRODUCT_DETAIL = "product:detail:";
+    public static final String CATEGORY_NAV = "category:nav";
+    public static final String CATEGORY_ALL = "category:all:";
+
+    // 与 JAX-RS 返回对象时使用同一个 JSON-B 实现，输出格式 (日期、null 字段) 保持一致
+    private static final Jsonb jsonb = JsonbBuilder.create();
+
+    public record CachedResponse(byte[] body, EntityTag etag) {
+    }
+
+    // TTL 只是兜底 (例如其他实例上的写操作)，正常情况下由写操作主动失效
+    private final TtlCache<String, CachedResponse> cache = new TtlCache<>(Duration.ofMinutes(5), 20_000);
+
+    @Inject
+    private TransactionCallbacks transactionCallbacks;
+
+    /**
+     * 返回缓存的响应；未命中时调用 loader 取得 data 并序列化 (loader 抛出的异常原样向上传递，不缓存)
+     */
+    public CachedResponse get(String key, Supplier<?> loader) {
+        return cache.get(key, k -> encode(loader.get()));
+    }
+
+    /**
+     * 构建响应：ETag 与请求的 If-None-Match 一致时返回 304，否则返回缓存的响应体
+     */
+    public Response toResponse(Request request, CachedResponse cached) {
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(cached.etag());
+        if (notModified != null) {
+            return notModified.tag(cached.etag()).build();
+        }
+        return Response.ok(cached.body()).tag(cached.etag()).build();
+    }
+
+    /**
+     * 失效单个键或某个前缀下的所有键 (见 TransactionCallbacks.evictNowAndAfterCompletion)
+     */
+    public void invalidate(String key) {
+        transactionCallbacks.evictNowAndAfterCompletion(() -> cache.invalidate(key));
+    }
+
+    public void invalidatePrefix(String prefix) {
+        transactionCallbacks.evictNowAndAfterCompletion(() -> cache.invalidateIf(key -> key.startsWith(prefix)));
+    }
+
+    /**
+     * 序列化为 {"code":1,"data":...} 的 UTF-8 字节
+     */
+    public static byte[] serialize(Object data) {
+        try {
+            return jsonb.toJson(ApiResponseDto.success(data)).getBytes(StandardCharsets.UTF_8);
+        } catch (JsonbException e) {
+            throw new IllegalStateException("Error serializing response", e);
+        }
+    }
+
+    private static CachedResponse encode(Object data) {
+        byte[] body = serialize(data);
+        return new CachedResponse(body, new EntityTag(hash(body)));
+    }
+
+    private static String hash(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.rabbuy.ecommerce.cache;
+
+import jakarta.annotation.Resource;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+
+import java.util.function.IntConsumer;
+
+/**
+ * 在当前 JTA 事务结束后执行回调
+ */
+@ApplicationScoped
+public class TransactionCallbacks {
+
+    @Resource
+    private TransactionSynchronizationRegistry transactionRegistry;
+
+    /**
+     * 缓存失效：立即执行一次，当前事务结束 (提交或回滚) 后再执行一次；没有活动事务时只执行一次
+     * 只在写操作的事务中失效是不够的：提交前其他请求仍可能读到旧数据并重新放入缓存
+     */
+    public void evictNowAndAfterCompletion(Runnable eviction) {
+        eviction.run();
+        if (inTransaction()) {
+            register(status -> eviction.run());
+        }
+    }
+
+    /**
+     * 当前事务回滚后执行；没有活动事务时不执行
+     */
+    public void afterRollback(Runnable action) {
+        if (!inTransaction()) {
+            return;
+        }
+        register(status -> {
+            if (status != Status.STATUS_COMMITTED) {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * 当前事务提交后执行；没有活动事务时立即执行
+     */
+    public void afterCommit(Runnable action) {
+        if (!inTransaction()) {
+            action.run();
+            return;
+        }
+        register(status -> {
+            if (status == Status.STATUS_COMMITTED) {
+                action.run();
+            }
+        });
+    }
+
+    private boolean inTransaction() {
+        return transactionRegistry != null && transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE;
+    }
+
+    private void register(IntConsumer onCompletion) {
+        transactionRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                onCompletion.accept(status);
+            }
+        });
+    }
+}
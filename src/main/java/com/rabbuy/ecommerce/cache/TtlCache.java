@@ -0,0 +1,75 @@
+package com.rabbuy.ecommerce.cache;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 简单的进程内缓存：每个条目在写入后 ttl 时间内有效
+ * 由各个 @ApplicationScoped 缓存 Bean 持有，写操作负责调用 invalidate
+ */
+public class TtlCache<K, V> {
+
+    private record Entry<V>(V value, long expiresAt) {}
+
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final int maxSize;
+
+    public TtlCache(Duration ttl, int maxSize) {
+        this.ttlMillis = ttl.toMillis();
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 返回缓存的值；不存在或已过期时调用 loader 加载并缓存 (loader 返回 null 时不缓存)
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        long now = System.currentTimeMillis();
+        Entry<V> entry = entries.get(key);
+        if (entry != null && entry.expiresAt() > now) {
+            return entry.value();
+        }
+
+        V value = loader.apply(key);
+        if (value != null) {
+            if (entries.size() >= maxSize) {
+                evictExpired(now);
+                if (entries.size() >= maxSize) {
+                    entries.clear(); // 仍然超出上限时整体清空，避免无界增长
+                }
+            }
+            entries.put(key, new Entry<>(value, now + ttlMillis));
+        }
+        return value;
+    }
+
+    /**
+     * 只读取，不加载；不存在或已过期时返回 null
+     */
+    public V getIfPresent(K key) {
+        Entry<V> entry = entries.get(key);
+        return (entry != null && entry.expiresAt() > System.currentTimeMillis()) ? entry.value() : null;
+    }
+
+    public void put(K key, V value) {
+        entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public void invalidateIf(Predicate<? super K> predicate) {
+        entries.keySet().removeIf(predicate);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    private void evictExpired(long now) {
+        entries.values().removeIf(entry -> entry.expiresAt() <= now);
+    }
+}
@@ -0,0 +1,112 @@
+package com.rabbuy.ecommerce.cart;
+
+import com.rabbuy.ecommerce.dao.CartDao;
+import com.rabbuy.ecommerce.dto.CartContentRow;
+import com.rabbuy.ecommerce.dto.CartItem;
+import com.rabbuy.ecommerce.dto.CartVersionDto;
+import jakarta.persistence.PersistenceException;
+import jakarta.transaction.TransactionalException;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+import org.hibernate.exception.ConstraintViolationException;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 在商品列表 (副本) 上应用修改，供基于完整列表的存储实现共用
+ */
+final class CartEdits {
+
+    private CartEdits() {
+    }
+
+    static List<CartItem> copyOf(List<CartItem> items) {
+        List<CartItem> copy = new ArrayList<>(items.size());
+        for (CartItem item : items) {
+            copy.add(new CartItem(item.getId(), item.getCount()));
+        }
+        return copy;
+    }
+
+    static void add(List<CartItem> items, String productId, int count) {
+        for (CartItem item : items) {
+            if (productId.equals(item.getId())) {
+                item.setCount(item.getCount() + count);
+                return;
+            }
+        }
+        items.add(new CartItem(productId, count));
+    }
+
+    static void setCount(List<CartItem> items, String productId, int count) {
+        for (CartItem item : items) {
+            if (productId.equals(item.getId())) {
+                item.setCount(count);
+                return;
+            }
+        }
+        throw new NotFoundException("Product is not in the cart");
+    }
+
+    static void remove(List<CartItem> items, String productId) {
+        items.removeIf(item -> productId.equals(item.getId()));
+    }
+
+    static void replace(List<CartItem> items, List<CartItem> replacement) {
+        items.clear();
+        items.addAll(copyOf(replacement));
+    }
+
+    /**
+     * 用户还没有购物车时视为版本号为 0 的空购物车：在空列表上应用修改，结果仍为空时不需要创建
+     * (例如移除商品)；设置不存在的商品数量等修改照常抛出异常
+     */
+    static boolean needsCart(Long expectedVersion, Consumer<List<CartItem>> change) {
+        if (expectedVersion != null && expectedVersion != 0) {
+            throw conflict();
+        }
+        List<CartItem> items = new ArrayList<>();
+        change.accept(items);
+        return !items.isEmpty();
+    }
+
+    /**
+     * 未创建的购物车的版本
+     */
+    static CartVersionDto virtualCart() {
+        return new CartVersionDto(null, 0);
+    }
+
+    /**
+     * 创建空购物车并返回其内容 (并发请求已经创建时直接使用已有的)
+     */
+    static CartContentRow createCart(CartDao cartDao, String userId) {
+        try {
+            cartDao.createForUser(userId);
+        } catch (PersistenceException | TransactionalException e) {
+            // 只有约束冲突是预期的：user_id 唯一 (其他请求已经创建，下面重新读取) 或用户不存在 (下面返回 404)
+            if (!isConstraintViolation(e)) {
+                throw e;
+            }
+        }
+        return cartDao.findContentByUserId(userId)
+                .orElseThrow(() -> new NotFoundException("User not found"));
+    }
+
+    private static boolean isConstraintViolation(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException || cause instanceof SQLIntegrityConstraintViolationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static WebApplicationException conflict() {
+        return new WebApplicationException("Cart was modified by another request, please reload it.", Response.Status.CONFLICT);
+    }
+}
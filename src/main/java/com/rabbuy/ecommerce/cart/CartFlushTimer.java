@@ -0,0 +1,32 @@
+package com.rabbuy.ecommerce.cart;
+
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * 每 5 秒把 write-behind 购物车的修改写回数据库 (非持久化定时器，应用重启后重新开始)
+ * 不在容器事务中执行：每批写回由 CartDao 各自提交，失败的批次下次重试
+ */
+@Singleton
+public class CartFlushTimer {
+
+    @Inject
+    private WriteBehindCartStore writeBehindCartStore;
+
+    @Inject
+    @ConfigProperty(name = "cart.storage", defaultValue = "json")
+    private String storageMode;
+
+    @Schedule(hour = "*", minute = "*", second = "*/5", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void flush() {
+        if (!"write-behind".equalsIgnoreCase(storageMode)) {
+            return;
+        }
+        writeBehindCartStore.flushAndEvict();
+    }
+}
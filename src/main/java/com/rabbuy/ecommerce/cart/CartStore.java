@@ -0,0 +1,42 @@
+package com.rabbuy.ecommerce.cart;
+
+import com.rabbuy.ecommerce.dto.CartContentRow;
+import com.rabbuy.ecommerce.dto.CartItem;
+import com.rabbuy.ecommerce.dto.CartVersionDto;
+import jakarta.ws.rs.NotFoundException;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 购物车内容的存储 (由 cart.storage 选择实现)
+ * - json：cart_cart.products 列，每次修改一条按版本号条件的 UPDATE
+ * - lines：cart_line 表，每次修改一行
+ * - write-behind：内存中合并连续的修改，定时批量写回 cart_cart
+ * expectedVersion 不为 null 时购物车必须仍是该版本，否则抛出 409
+ * 用户还没有购物车时视为版本号为 0 的空购物车：find 返回 empty，修改后不为空时才创建购物车
+ */
+public interface CartStore {
+
+    /**
+     * 购物车当前的内容 (商品按加入顺序)
+     */
+    Optional<CartContentRow> find(String userId);
+
+    /**
+     * 累加数量，商品不在购物车中时追加到末尾
+     */
+    CartVersionDto add(String userId, String productId, int count, Long expectedVersion) throws NotFoundException;
+
+    /**
+     * 设置数量，商品不在购物车中时抛出 NotFoundException
+     */
+    CartVersionDto setCount(String userId, String productId, int count, Long expectedVersion) throws NotFoundException;
+
+    CartVersionDto remove(String userId, String productId, Long expectedVersion) throws NotFoundException;
+
+    /**
+     * 完全覆盖
+     */
+    CartVersionDto replace(String userId, List<CartItem> items, Long expectedVersion) throws NotFoundException;
+}
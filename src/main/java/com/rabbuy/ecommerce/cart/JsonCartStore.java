@@ -0,0 +1,85 @@
+package com.rabbuy.ecommerce.cart;
+
+import com.rabbuy.ecommerce.dao.CartDao;
+import com.rabbuy.ecommerce.dto.CartContentRow;
+import com.rabbuy.ecommerce.dto.CartItem;
+import com.rabbuy.ecommerce.dto.CartVersionDto;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * cart.storage=json：商品列表保存在 cart_cart.products 列
+ */
+@ApplicationScoped
+public class JsonCartStore implements CartStore {
+
+    // 未指定版本号时，版本冲突后重新读取并重放修改的最多次数
+    private static final int MAX_MUTATION_ATTEMPTS = 3;
+
+    @Inject
+    private CartDao cartDao;
+
+    @Override
+    public Optional<CartContentRow> find(String userId) {
+        return cartDao.findContentByUserId(userId);
+    }
+
+    @Override
+    public CartVersionDto add(String userId, String productId, int count, Long expectedVersion) {
+        return mutate(userId, expectedVersion, items -> CartEdits.add(items, productId, count));
+    }
+
+    @Override
+    public CartVersionDto setCount(String userId, String productId, int count, Long expectedVersion) {
+        return mutate(userId, expectedVersion, items -> CartEdits.setCount(items, productId, count));
+    }
+
+    @Override
+    public CartVersionDto remove(String userId, String productId, Long expectedVersion) {
+        return mutate(userId, expectedVersion, items -> CartEdits.remove(items, productId));
+    }
+
+    @Override
+    public CartVersionDto replace(String userId, List<CartItem> items, Long expectedVersion) {
+        return mutate(userId, expectedVersion, current -> CartEdits.replace(current, items));
+    }
+
+    /**
+     * 读取购物车 -> 在副本上应用修改 -> 按版本号条件写回
+     * - 指定了 expectedVersion：版本不一致直接返回 409，由客户端重新加载后决定
+     * - 未指定：修改与顺序无关 (增量)，冲突时重新读取并重放，多次冲突后返回 409
+     * 用户还没有购物车时先创建 (修改后仍为空时不创建)
+     * 不在事务中执行：每次重试都需要读取到其他请求已提交的最新版本
+     */
+    private CartVersionDto mutate(String userId, Long expectedVersion, Consumer<List<CartItem>> change) {
+        for (int attempt = 0; attempt < MAX_MUTATION_ATTEMPTS; attempt++) {
+            Optional<CartContentRow> found = cartDao.findContentByUserId(userId);
+            if (found.isEmpty() && !CartEdits.needsCart(expectedVersion, change)) {
+                return CartEdits.virtualCart();
+            }
+            CartContentRow cart = found.isPresent() ? found.get() : CartEdits.createCart(cartDao, userId);
+            if (expectedVersion != null && cart.version() != expectedVersion) {
+                throw CartEdits.conflict();
+            }
+
+            // 投影读取的对象不受 JPA 管理，直接在副本上修改
+            List<CartItem> products = CartEdits.copyOf(cart.products());
+            change.accept(products);
+            if (products.equals(cart.products())) {
+                return new CartVersionDto(cart.cartId(), cart.version()); // 没有变化，不写数据库
+            }
+
+            if (cartDao.updateProductsIfVersion(cart.cartId(), products, cart.version())) {
+                return new CartVersionDto(cart.cartId(), cart.version() + 1);
+            }
+            if (expectedVersion != null) {
+                throw CartEdits.conflict();
+            }
+        }
+        throw CartEdits.conflict();
+    }
+}
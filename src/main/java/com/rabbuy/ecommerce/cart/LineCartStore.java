@@ -0,0 +1,123 @@
+package com.rabbuy.ecommerce.cart;
+
+import com.rabbuy.ecommerce.cache.ProductSummaryCache;
+import com.rabbuy.ecommerce.dao.CartDao;
+import com.rabbuy.ecommerce.dao.CartLineDao;
+import com.rabbuy.ecommerce.dto.CartContentRow;
+import com.rabbuy.ecommerce.dto.CartItem;
+import com.rabbuy.ecommerce.dto.CartLineRow;
+import com.rabbuy.ecommerce.dto.CartVersionDto;
+import com.rabbuy.ecommerce.dto.ProductSummary;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.NotFoundException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * cart.storage=lines：每个商品一行 cart_line
+ * 各购物车在第一次读取或修改时把 JSON 中的商品迁移到 cart_line
+ */
+@ApplicationScoped
+public class LineCartStore implements CartStore {
+
+    // 迁移时与其他请求冲突后重新读取的最多次数
+    private static final int MAX_MIGRATION_ATTEMPTS = 3;
+
+    @Inject
+    private CartDao cartDao;
+
+    @Inject
+    private CartLineDao cartLineDao;
+
+    @Inject
+    private ProductSummaryCache productSummaryCache;
+
+    @Override
+    public Optional<CartContentRow> find(String userId) {
+        Optional<CartContentRow> found = cartDao.findContentByUserId(userId);
+        if (found.isEmpty()) {
+            return found;
+        }
+        CartContentRow cart = found.get().products().isEmpty() ? found.get()
+                : migratedContent(userId).orElseThrow(() -> new NotFoundException("Cart not found for user"));
+
+        // cart_line 与商品一次 JOIN 取出，商品摘要顺便放入共享缓存，渲染时不再查询
+        List<CartItem> items = new ArrayList<>();
+        List<ProductSummary> summaries = new ArrayList<>();
+        for (CartLineRow row : cartLineDao.findRowsByCartId(cart.cartId())) {
+            items.add(new CartItem(row.productId(), row.quantity()));
+            if (row.summary() != null) {
+                summaries.add(row.summary());
+            }
+        }
+        productSummaryCache.putAll(summaries);
+        return Optional.of(new CartContentRow(cart.cartId(), cart.version(), items, cart.createdTime(), cart.updatedTime()));
+    }
+
+    @Override
+    public CartVersionDto add(String userId, String productId, int count, Long expectedVersion) {
+        return mutate(userId, expectedVersion, items -> CartEdits.add(items, productId, count),
+                cartId -> cartLineDao.addQuantity(cartId, productId, count, expectedVersion));
+    }
+
+    @Override
+    public CartVersionDto setCount(String userId, String productId, int count, Long expectedVersion) {
+        return mutate(userId, expectedVersion, items -> CartEdits.setCount(items, productId, count),
+                cartId -> cartLineDao.setQuantity(cartId, productId, count, expectedVersion));
+    }
+
+    @Override
+    public CartVersionDto remove(String userId, String productId, Long expectedVersion) {
+        return mutate(userId, expectedVersion, items -> CartEdits.remove(items, productId),
+                cartId -> cartLineDao.delete(cartId, productId, expectedVersion));
+    }
+
+    @Override
+    public CartVersionDto replace(String userId, List<CartItem> items, Long expectedVersion) {
+        return mutate(userId, expectedVersion, current -> CartEdits.replace(current, items),
+                cartId -> cartLineDao.replaceAll(cartId, items, expectedVersion));
+    }
+
+    /**
+     * 只修改一行 (版本号的检查和递增由 CartLineDao 在同一事务中完成，无需重试)
+     * 用户还没有购物车时，emptyCartChange 在空列表上应用后不为空才创建购物车
+     */
+    private CartVersionDto mutate(String userId, Long expectedVersion, Consumer<List<CartItem>> emptyCartChange,
+                                  Function<String, Optional<Long>> change) {
+        Optional<CartContentRow> found = migratedContent(userId);
+        if (found.isEmpty()) {
+            if (!CartEdits.needsCart(expectedVersion, emptyCartChange)) {
+                return CartEdits.virtualCart();
+            }
+            CartEdits.createCart(cartDao, userId);
+            found = migratedContent(userId);
+        }
+        CartContentRow cart = found.orElseThrow(() -> new NotFoundException("Cart not found for user"));
+        Long version = change.apply(cart.cartId()).orElseThrow(CartEdits::conflict);
+        return new CartVersionDto(cart.cartId(), version);
+    }
+
+    /**
+     * JSON 中还有商品时先迁移到 cart_line (只发生一次，迁移后 JSON 为空数组)；用户还没有购物车时返回 empty
+     */
+    private Optional<CartContentRow> migratedContent(String userId) {
+        for (int attempt = 0; attempt < MAX_MIGRATION_ATTEMPTS; attempt++) {
+            Optional<CartContentRow> found = cartDao.findContentByUserId(userId);
+            if (found.isEmpty() || found.get().products().isEmpty()) {
+                return found;
+            }
+            CartContentRow cart = found.get();
+            Optional<Long> version = cartLineDao.migrateFromJson(cart.cartId(), cart.products(), cart.version());
+            if (version.isPresent()) {
+                return Optional.of(new CartContentRow(cart.cartId(), version.get(), List.of(), cart.createdTime(), cart.updatedTime()));
+            }
+            // 其他请求同时迁移或修改了购物车，重新读取
+        }
+        throw CartEdits.conflict();
+    }
+}
@@ -0,0 +1,342 @@
+package com.rabbuy.ecommerce.cart;
+
+import com.rabbuy.ecommerce.dao.CartDao;
+import com.rabbuy.ecommerce.dto.CartContentRow;
+import com.rabbuy.ecommerce.dto.CartItem;
+import com.rabbuy.ecommerce.dto.CartProductsUpdate;
+import com.rabbuy.ecommerce.dto.CartVersionDto;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * cart.storage=write-behind：最近使用的购物车保存在内存中，修改只改内存，由 CartFlushTimer 定时批量写回 cart_cart
+ * - 同一用户的读写在同一把分段锁内完成，读取总能看到该用户最新的修改 (包括尚未写回的)
+ * - 连续多次修改只在下一次写回时产生一条 UPDATE，版本号直接写为内存中的版本号
+ * - 空闲或超出容量的购物车由定时任务先写回再淘汰 (不占用请求线程)；应用关闭时写回全部
+ * - 写回时发现数据库中的购物车已被其他途径修改：以数据库为准，重放尚未写回的修改后再写回，不丢弃已确认的修改
+ * 内存中的修改在写回之前只存在于本实例：只适用于单实例部署，进程异常退出会丢失最近几秒的修改
+ */
+@ApplicationScoped
+public class WriteBehindCartStore implements CartStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindCartStore.class);
+
+    private static final int STRIPES = 64;
+
+    @Inject
+    private CartDao cartDao;
+
+    @Inject
+    @ConfigProperty(name = "cart.write-behind.max-entries", defaultValue = "10000")
+    private int maxEntries;
+
+    @Inject
+    @ConfigProperty(name = "cart.write-behind.idle-seconds", defaultValue = "300")
+    private long idleSeconds;
+
+    @Inject
+    @ConfigProperty(name = "cart.write-behind.batch-size", defaultValue = "200")
+    private int batchSize;
+
+    /**
+     * 内存中的购物车，除 cartId / createdTime 外的字段都由所属的分段锁保护
+     */
+    private static final class Entry {
+        final String cartId;
+        final OffsetDateTime createdTime;
+        List<CartItem> items;
+        long version;          // 当前版本号 (每次修改加 1)
+        long persistedVersion; // 数据库中的版本号；小于 version 表示有未写回的修改
+        OffsetDateTime updatedTime;
+        volatile long lastAccess; // 淘汰时在锁外读取
+        boolean flushing;      // 正在写回，写回完成前不能淘汰
+        // 尚未写回的修改 (按顺序)，写回冲突时在数据库的最新内容上重放
+        final List<Consumer<List<CartItem>>> pendingEdits = new ArrayList<>();
+
+        Entry(CartContentRow row) {
+            this.cartId = row.cartId();
+            this.createdTime = row.createdTime();
+            this.items = CartEdits.copyOf(row.products());
+            this.version = row.version();
+            this.persistedVersion = row.version();
+            this.updatedTime = row.updatedTime();
+            this.lastAccess = System.currentTimeMillis();
+        }
+
+        boolean isDirty() {
+            return version != persistedVersion;
+        }
+    }
+
+    private record PendingWrite(String userId, CartProductsUpdate update, int editCount) {
+    }
+
+    private final Object[] stripes = new Object[STRIPES];
+    private final Map<String, Entry> carts = new ConcurrentHashMap<>();
+
+    public WriteBehindCartStore() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    // --- 读写 ---
+
+    @Override
+    public Optional<CartContentRow> find(String userId) {
+        synchronized (stripe(userId)) {
+            Entry entry = loadLocked(userId);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            return Optional.of(new CartContentRow(entry.cartId, entry.version, CartEdits.copyOf(entry.items),
+                    entry.createdTime, entry.updatedTime));
+        }
+    }
+
+    @Override
+    public CartVersionDto add(String userId, String productId, int count, Long expectedVersion) {
+        return mutate(userId, expectedVersion, items -> CartEdits.add(items, productId, count));
+    }
+
+    @Override
+    public CartVersionDto setCount(String userId, String productId, int count, Long expectedVersion) {
+        return mutate(userId, expectedVersion, items -> CartEdits.setCount(items, productId, count));
+    }
+
+    @Override
+    public CartVersionDto remove(String userId, String productId, Long expectedVersion) {
+        return mutate(userId, expectedVersion, items -> CartEdits.remove(items, productId));
+    }
+
+    @Override
+    public CartVersionDto replace(String userId, List<CartItem> items, Long expectedVersion) {
+        return mutate(userId, expectedVersion, current -> CartEdits.replace(current, items));
+    }
+
+    private CartVersionDto mutate(String userId, Long expectedVersion, Consumer<List<CartItem>> change) {
+        // 超出容量的淘汰由 CartFlushTimer 完成，这里只修改内存
+        synchronized (stripe(userId)) {
+            Entry entry = loadLocked(userId);
+            if (entry == null) {
+                // 还没有购物车：修改后不为空时立即在数据库中创建 (只发生一次)
+                if (!CartEdits.needsCart(expectedVersion, change)) {
+                    return CartEdits.virtualCart();
+                }
+                entry = new Entry(CartEdits.createCart(cartDao, userId));
+                carts.put(userId, entry);
+            }
+            if (expectedVersion != null && entry.version != expectedVersion) {
+                throw CartEdits.conflict();
+            }
+
+            List<CartItem> items = CartEdits.copyOf(entry.items);
+            change.accept(items); // 抛出异常时内存中的购物车保持不变
+            if (!items.equals(entry.items)) {
+                entry.items = items;
+                entry.version++;
+                entry.updatedTime = OffsetDateTime.now();
+                entry.pendingEdits.add(change);
+            }
+            return new CartVersionDto(entry.cartId, entry.version);
+        }
+    }
+
+    /**
+     * 在分段锁内调用：返回内存中的购物车，不在内存中时从数据库加载
+     */
+    private Entry loadLocked(String userId) {
+        Entry entry = carts.get(userId);
+        if (entry == null) {
+            Optional<CartContentRow> row = cartDao.findContentByUserId(userId);
+            if (row.isEmpty()) {
+                return null;
+            }
+            entry = new Entry(row.get());
+            carts.put(userId, entry);
+        }
+        entry.lastAccess = System.currentTimeMillis();
+        return entry;
+    }
+
+    private Object stripe(String userId) {
+        return stripes[Math.floorMod(userId.hashCode(), STRIPES)];
+    }
+
+    // --- 写回与淘汰 ---
+
+    /**
+     * 由 CartFlushTimer 定时调用：写回所有有修改的购物车，再淘汰空闲的和超出容量的
+     */
+    public void flushAndEvict() {
+        flush(new ArrayList<>(carts.keySet()));
+
+        long idleBefore = System.currentTimeMillis() - idleSeconds * 1000;
+        List<String> idle = new ArrayList<>();
+        for (Map.Entry<String, Entry> e : carts.entrySet()) {
+            if (e.getValue().lastAccess < idleBefore) {
+                idle.add(e.getKey());
+            }
+        }
+        evict(idle);
+        evictOverCapacity();
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        int dirty = (int) carts.values().stream().filter(Entry::isDirty).count();
+        logger.info("Flushing {} cached carts with pending changes before shutdown", dirty);
+        flush(new ArrayList<>(carts.keySet()));
+    }
+
+    /**
+     * 按最近访问时间淘汰最久未使用的购物车，直到不超过容量 (只由定时任务调用)
+     */
+    private void evictOverCapacity() {
+        if (carts.size() <= maxEntries) {
+            return;
+        }
+        int excess = carts.size() - maxEntries;
+        List<Map.Entry<String, Long>> byAccess = new ArrayList<>();
+        for (Map.Entry<String, Entry> e : carts.entrySet()) {
+            byAccess.add(Map.entry(e.getKey(), e.getValue().lastAccess));
+        }
+        byAccess.sort(Map.Entry.comparingByValue(Comparator.naturalOrder()));
+        List<String> victims = new ArrayList<>();
+        for (int i = 0; i < excess && i < byAccess.size(); i++) {
+            victims.add(byAccess.get(i).getKey());
+        }
+        evict(victims);
+    }
+
+    /**
+     * 先写回再从内存中移除；写回期间又有修改时保留，等待下次写回
+     */
+    private void evict(List<String> userIds) {
+        flush(userIds);
+        for (String userId : userIds) {
+            synchronized (stripe(userId)) {
+                Entry entry = carts.get(userId);
+                if (entry != null && !entry.isDirty() && !entry.flushing) {
+                    carts.remove(userId);
+                }
+            }
+        }
+    }
+
+    /**
+     * 把指定用户的修改写回数据库：在各自的锁内取快照，在锁外分批写入 (每批一个事务)，再在锁内更新状态
+     */
+    private void flush(List<String> userIds) {
+        // 1. 快照
+        List<PendingWrite> writes = new ArrayList<>();
+        for (String userId : userIds) {
+            synchronized (stripe(userId)) {
+                Entry entry = carts.get(userId);
+                if (entry == null || !entry.isDirty() || entry.flushing) {
+                    continue;
+                }
+                entry.flushing = true;
+                writes.add(new PendingWrite(userId, new CartProductsUpdate(
+                        entry.cartId, CartEdits.copyOf(entry.items), entry.persistedVersion, entry.version),
+                        entry.pendingEdits.size()));
+            }
+        }
+
+        // 2. 分批写入
+        for (int from = 0; from < writes.size(); from += batchSize) {
+            List<PendingWrite> batch = writes.subList(from, Math.min(from + batchSize, writes.size()));
+            List<CartProductsUpdate> updates = new ArrayList<>(batch.size());
+            for (PendingWrite write : batch) {
+                updates.add(write.update());
+            }
+
+            Set<String> conflicts;
+            try {
+                conflicts = new HashSet<>(cartDao.updateProductsBatch(updates));
+            } catch (RuntimeException e) {
+                // 保持为未写回状态，下次定时任务重试
+                logger.error("Failed to flush {} carts, will retry: {}", batch.size(), e.getMessage(), e);
+                for (PendingWrite write : batch) {
+                    synchronized (stripe(write.userId())) {
+                        Entry entry = carts.get(write.userId());
+                        if (entry != null) entry.flushing = false;
+                    }
+                }
+                continue;
+            }
+
+            // 3. 更新状态
+            for (PendingWrite write : batch) {
+                synchronized (stripe(write.userId())) {
+                    Entry entry = carts.get(write.userId());
+                    if (entry == null) {
+                        continue;
+                    }
+                    entry.flushing = false;
+                    if (conflicts.contains(write.update().cartId())) {
+                        rebaseLocked(write.userId(), entry);
+                    } else {
+                        entry.persistedVersion = write.update().newVersion();
+                        entry.pendingEdits.subList(0, write.editCount()).clear();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 在分段锁内调用：数据库中的购物车被其他途径修改 (例如其他实例)
+     * 重新读取数据库中的内容，在其上按顺序重放尚未写回的修改，由下次定时任务写回
+     * 版本号跳过客户端见过的所有版本，持有旧版本号的客户端下次修改时收到 409
+     */
+    private void rebaseLocked(String userId, Entry entry) {
+        Optional<CartContentRow> row;
+        try {
+            row = cartDao.findContentByUserId(userId);
+        } catch (RuntimeException e) {
+            // 保持为未写回状态，下次写回时再次冲突并重试
+            logger.error("Failed to reload conflicting cart {}, will retry: {}", entry.cartId, e.getMessage(), e);
+            return;
+        }
+        if (row.isEmpty() || !row.get().cartId().equals(entry.cartId)) {
+            logger.warn("Cart {} no longer exists, dropping {} cached changes", entry.cartId, entry.pendingEdits.size());
+            carts.remove(userId);
+            return;
+        }
+
+        List<CartItem> items = CartEdits.copyOf(row.get().products());
+        int skipped = 0;
+        for (Consumer<List<CartItem>> edit : entry.pendingEdits) {
+            List<CartItem> next = CartEdits.copyOf(items);
+            try {
+                edit.accept(next);
+                items = next;
+            } catch (RuntimeException e) {
+                skipped++; // 在最新内容上已不适用 (例如要修改的商品已被移除)
+            }
+        }
+        logger.warn("Cart {} was modified outside the write-behind store, replayed {} cached changes ({} no longer applied)",
+                entry.cartId, entry.pendingEdits.size() - skipped, skipped);
+
+        entry.items = items;
+        entry.persistedVersion = row.get().version();
+        entry.version = Math.max(entry.version, row.get().version()) + 1;
+        entry.updatedTime = OffsetDateTime.now();
+    }
+}
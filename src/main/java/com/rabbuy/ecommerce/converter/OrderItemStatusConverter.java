@@ -0,0 +1,27 @@
+package com.rabbuy.ecommerce.converter;
+
+import com.rabbuy.ecommerce.entity.OrderItemStatus;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter(autoApply = true)
+public class OrderItemStatusConverter implements AttributeConverter<OrderItemStatus, Integer> {
+
+    @Override
+    public Integer convertToDatabaseColumn(OrderItemStatus attribute) {
+        // 以数值存储，便于建立索引和范围查询
+        return attribute == null ? null : attribute.code();
+    }
+
+    @Override
+    public OrderItemStatus convertToEntityAttribute(Integer dbData) {
+        if (dbData == null) {
+            return null;
+        }
+        OrderItemStatus status = OrderItemStatus.fromCode(dbData);
+        if (status == null) {
+            throw new IllegalArgumentException("Unknown order item status code: " + dbData);
+        }
+        return status;
+    }
+}
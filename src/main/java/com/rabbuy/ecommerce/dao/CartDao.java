@@ -1,16 +1,34 @@
 package com.rabbuy.ecommerce.dao;
 
+import com.rabbuy.ecommerce.dto.CartContentRow;
+import com.rabbuy.ecommerce.dto.CartItem;
+import com.rabbuy.ecommerce.dto.CartProductsUpdate;
 import com.rabbuy.ecommerce.entity.Cart;
+
+import java.util.List;
 import java.util.Optional;
 
 // Cart 数据访问对象接口
 public interface CartDao {
 
     /**
-     * 根据用户 ID 查找购物车 (核心查询方法)
+     * 只读取购物车 ID、版本号和商品列表 (不返回受管实体)
+     */
+    Optional<CartContentRow> findContentByUserId(String userId);
+
+    /**
+     * 购物车仍是 expectedVersion 时写入新的商品列表并把版本号加 1
      *
+     * @return 版本号不匹配 (期间被其他请求修改) 时返回 false
      */
-    Optional<Cart> findByUserId(String userId);
+    boolean updateProductsIfVersion(String cartId, List<CartItem> products, long expectedVersion);
+
+    /**
+     * 在一个事务中写入多个购物车 (每个购物车仍按版本号条件更新)
+     *
+     * @return 版本号不匹配、没有写入的购物车 ID
+     */
+    List<String> updateProductsBatch(List<CartProductsUpdate> updates);
 
     /**
      * 根据购物车 ID 查找
@@ -18,10 +36,10 @@ public interface CartDao {
     Optional<Cart> findById(String cartId);
 
     /**
-     * 保存新购物车 (例如，用户注册时)
-     *
+     * 为用户创建空购物车 (第一次加入商品时)
+     * 用户已有购物车 (并发请求已创建，user_id 唯一) 时抛出 PersistenceException
      */
-    void save(Cart cart);
+    void createForUser(String userId);
 
     /**
      * 更新购物车 (例如，更新 products 列表)
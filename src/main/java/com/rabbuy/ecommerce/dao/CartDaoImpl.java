@@ -1,12 +1,18 @@
 package com.rabbuy.ecommerce.dao;
 
+import com.rabbuy.ecommerce.dto.CartContentRow;
+import com.rabbuy.ecommerce.dto.CartItem;
+import com.rabbuy.ecommerce.dto.CartProductsUpdate;
 import com.rabbuy.ecommerce.entity.Cart;
+import com.rabbuy.ecommerce.entity.User;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.persistence.EntityManager;
-import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
 
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -17,19 +23,50 @@ public class CartDaoImpl implements CartDao {
     private EntityManager em;
 
     @Override
-    public Optional<Cart> findByUserId(String userId) {
-        //
-        // Cart 与 User 是一对一关系
-        String jpql = "SELECT c FROM Cart c WHERE c.user.id = :userId";
-        try {
-            return Optional.of(
-                    em.createQuery(jpql, Cart.class)
-                            .setParameter("userId", userId)
-                            .getSingleResult() // 一对一关系，预期最多一个结果
-            );
-        } catch (NoResultException e) {
-            return Optional.empty(); // 未找到该用户的购物车
+    public Optional<CartContentRow> findContentByUserId(String userId) {
+        String jpql = "SELECT new com.rabbuy.ecommerce.dto.CartContentRow(" +
+                "c.cartId, c.version, c.products, c.createdTime, c.updatedTime) " +
+                "FROM Cart c WHERE c.user.id = :userId";
+        return em.createQuery(jpql, CartContentRow.class)
+                .setParameter("userId", userId)
+                .getResultStream()
+                .findFirst();
+    }
+
+    @Override
+    @Transactional
+    public boolean updateProductsIfVersion(String cartId, List<CartItem> products, long expectedVersion) {
+        // 批量 UPDATE 不经过持久化上下文，版本号比较和写入在同一条语句中完成
+        String jpql = "UPDATE Cart c SET c.products = :products, c.version = c.version + 1, c.updatedTime = :now " +
+                "WHERE c.cartId = :id AND c.version = :version";
+        return em.createQuery(jpql)
+                .setParameter("products", products)
+                .setParameter("now", OffsetDateTime.now())
+                .setParameter("id", cartId)
+                .setParameter("version", expectedVersion)
+                .executeUpdate() > 0;
+    }
+
+    @Override
+    @Transactional
+    public List<String> updateProductsBatch(List<CartProductsUpdate> updates) {
+        String jpql = "UPDATE Cart c SET c.products = :products, c.version = :newVersion, c.updatedTime = :now " +
+                "WHERE c.cartId = :id AND c.version = :version";
+        OffsetDateTime now = OffsetDateTime.now();
+        List<String> conflicts = new ArrayList<>();
+        for (CartProductsUpdate update : updates) {
+            int updated = em.createQuery(jpql)
+                    .setParameter("products", update.products())
+                    .setParameter("newVersion", update.newVersion())
+                    .setParameter("now", now)
+                    .setParameter("id", update.cartId())
+                    .setParameter("version", update.expectedVersion())
+                    .executeUpdate();
+            if (updated == 0) {
+                conflicts.add(update.cartId());
+            }
         }
+        return conflicts;
     }
 
     @Override
@@ -39,9 +76,11 @@ public class CartDaoImpl implements CartDao {
 
     @Override
     @Transactional
-    public void save(Cart cart) {
-        //
+    public void createForUser(String userId) {
+        Cart cart = new Cart();
+        cart.setUser(em.getReference(User.class, userId)); // 不需要加载用户
         em.persist(cart);
+        em.flush(); // 唯一约束冲突在这里抛出，而不是在提交时
     }
 
     @Override
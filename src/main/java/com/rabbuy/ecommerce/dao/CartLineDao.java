@@ -0,0 +1,40 @@
+package com.rabbuy.ecommerce.dao;
+
+import com.rabbuy.ecommerce.dto.CartItem;
+import com.rabbuy.ecommerce.dto.CartLineRow;
+
+import java.util.List;
+import java.util.Optional;
+
+// cart_line 数据访问对象接口 (cart.storage=lines)
+// 修改方法都在同一个事务中先把购物车版本号加 1 (同时锁定该购物车)，再修改对应的行
+// expectedVersion 不为 null 时只有购物车仍是该版本才会修改；返回新版本号，版本不匹配时返回 empty
+public interface CartLineDao {
+
+    /**
+     * 购物车的所有商品行 LEFT JOIN 商品 (一条查询，按加入顺序排序)
+     */
+    List<CartLineRow> findRowsByCartId(String cartId);
+
+    /**
+     * 把 cart_cart.products 中的商品迁移到 cart_line：清空 JSON 并用其内容替换该购物车已有的行
+     */
+    Optional<Long> migrateFromJson(String cartId, List<CartItem> items, long expectedVersion);
+
+    /**
+     * 累加数量，商品不在购物车中时追加一行
+     */
+    Optional<Long> addQuantity(String cartId, String productId, int delta, Long expectedVersion);
+
+    /**
+     * 设置数量，商品不在购物车中时抛出 NotFoundException
+     */
+    Optional<Long> setQuantity(String cartId, String productId, int quantity, Long expectedVersion);
+
+    Optional<Long> delete(String cartId, String productId, Long expectedVersion);
+
+    /**
+     * 用给定的商品替换整个购物车 (重复的商品合并数量)
+     */
+    Optional<Long> replaceAll(String cartId, List<CartItem> items, Long expectedVersion);
+}
@@ -0,0 +1,172 @@
+package com.rabbuy.ecommerce.dao;
+
+import com.rabbuy.ecommerce.dto.CartItem;
+import com.rabbuy.ecommerce.dto.CartLineRow;
+import com.rabbuy.ecommerce.entity.CartLine;
+import com.rabbuy.ecommerce.entity.CartLineId;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.transaction.Transactional;
+import jakarta.ws.rs.NotFoundException;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@ApplicationScoped // CDI Bean
+public class CartLineDaoImpl implements CartLineDao {
+
+    @PersistenceContext(unitName = "default")
+    private EntityManager em;
+
+    @Override
+    public List<CartLineRow> findRowsByCartId(String cartId) {
+        String jpql = "SELECT new com.rabbuy.ecommerce.dto.CartLineRow(" +
+                "l.productId, l.quantity, p.productId, p.productName, p.price, " +
+                "cast(function('json_unquote', function('json_extract', p.images, '$[0]')) as String), " +
+                "p.status, p.isDeleted, p.stockQuantity) " +
+                "FROM CartLine l LEFT JOIN Product p ON p.productId = l.productId " +
+                "WHERE l.cartId = :cartId ORDER BY l.position";
+        return em.createQuery(jpql, CartLineRow.class)
+                .setParameter("cartId", cartId)
+                .getResultList();
+    }
+
+    @Override
+    @Transactional
+    public Optional<Long> migrateFromJson(String cartId, List<CartItem> items, long expectedVersion) {
+        // 1. 按版本号条件清空 JSON，失败说明其他请求已经迁移或修改了购物车
+        String jpql = "UPDATE Cart c SET c.products = :empty, c.version = c.version + 1, c.updatedTime = :now " +
+                "WHERE c.cartId = :id AND c.version = :version";
+        int updated = em.createQuery(jpql)
+                .setParameter("empty", new ArrayList<CartItem>())
+                .setParameter("now", OffsetDateTime.now())
+                .setParameter("id", cartId)
+                .setParameter("version", expectedVersion)
+                .executeUpdate();
+        if (updated == 0) {
+            return Optional.empty();
+        }
+
+        // 2. JSON 中还有商品说明它比已有的行更新 (例如曾切换回 json 模式)，以 JSON 为准
+        insertLines(cartId, items);
+        return Optional.of(expectedVersion + 1);
+    }
+
+    @Override
+    @Transactional
+    public Optional<Long> addQuantity(String cartId, String productId, int delta, Long expectedVersion) {
+        Optional<Long> version = bumpVersion(cartId, expectedVersion);
+        if (version.isEmpty()) {
+            return version;
+        }
+
+        CartLine line = em.find(CartLine.class, new CartLineId(cartId, productId));
+        if (line != null) {
+            line.setQuantity(line.getQuantity() + delta);
+        } else {
+            em.persist(new CartLine(cartId, productId, delta, nextPosition(cartId)));
+        }
+        return version;
+    }
+
+    @Override
+    @Transactional
+    public Optional<Long> setQuantity(String cartId, String productId, int quantity, Long expectedVersion) {
+        Optional<Long> version = bumpVersion(cartId, expectedVersion);
+        if (version.isEmpty()) {
+            return version;
+        }
+
+        CartLine line = em.find(CartLine.class, new CartLineId(cartId, productId));
+        if (line == null) {
+            throw new NotFoundException("Product is not in the cart"); // 回滚版本号
+        }
+        line.setQuantity(quantity);
+        return version;
+    }
+
+    @Override
+    @Transactional
+    public Optional<Long> delete(String cartId, String productId, Long expectedVersion) {
+        Optional<Long> version = bumpVersion(cartId, expectedVersion);
+        if (version.isEmpty()) {
+            return version;
+        }
+
+        em.createQuery("DELETE FROM CartLine l WHERE l.cartId = :cartId AND l.productId = :productId")
+                .setParameter("cartId", cartId)
+                .setParameter("productId", productId)
+                .executeUpdate();
+        return version;
+    }
+
+    @Override
+    @Transactional
+    public Optional<Long> replaceAll(String cartId, List<CartItem> items, Long expectedVersion) {
+        Optional<Long> version = bumpVersion(cartId, expectedVersion);
+        if (version.isEmpty()) {
+            return version;
+        }
+
+        insertLines(cartId, items);
+        return version;
+    }
+
+    /**
+     * 购物车版本号加 1；UPDATE 获取的行锁使同一购物车的修改串行执行，之后的读取能看到已提交的最新行
+     */
+    private Optional<Long> bumpVersion(String cartId, Long expectedVersion) {
+        String jpql = "UPDATE Cart c SET c.version = c.version + 1, c.updatedTime = :now WHERE c.cartId = :id";
+        if (expectedVersion != null) {
+            jpql += " AND c.version = :version";
+        }
+        Query query = em.createQuery(jpql)
+                .setParameter("now", OffsetDateTime.now())
+                .setParameter("id", cartId);
+        if (expectedVersion != null) {
+            query.setParameter("version", expectedVersion);
+        }
+        if (query.executeUpdate() == 0) {
+            return Optional.empty();
+        }
+
+        if (expectedVersion != null) {
+            return Optional.of(expectedVersion + 1);
+        }
+        return Optional.of(em.createQuery("SELECT c.version FROM Cart c WHERE c.cartId = :id", Long.class)
+                .setParameter("id", cartId)
+                .getSingleResult());
+    }
+
+    private int nextPosition(String cartId) {
+        return em.createQuery("SELECT coalesce(max(l.position), -1) FROM CartLine l WHERE l.cartId = :cartId", Integer.class)
+                .setParameter("cartId", cartId)
+                .getSingleResult() + 1;
+    }
+
+    /**
+     * 删除购物车已有的行，再按顺序插入 (重复的商品合并数量，同一事务内批量写入)
+     */
+    private void insertLines(String cartId, List<CartItem> items) {
+        em.createQuery("DELETE FROM CartLine l WHERE l.cartId = :cartId")
+                .setParameter("cartId", cartId)
+                .executeUpdate();
+
+        Map<String, Integer> merged = new LinkedHashMap<>();
+        for (CartItem item : items) {
+            if (item.getId() != null && item.getCount() > 0) {
+                merged.merge(item.getId(), item.getCount(), Integer::sum);
+            }
+        }
+        int position = 0;
+        for (Map.Entry<String, Integer> entry : merged.entrySet()) {
+            em.persist(new CartLine(cartId, entry.getKey(), entry.getValue(), position++));
+        }
+    }
+}
@@ -14,6 +14,8 @@ public interface CategoryDao {
 
     PaginatedResult<Category> findAll(int page, int pageSize);
 
+    List<Category> findAll(); // 查找全部 (用于构建内存分类树)
+
     List<Category> findActiveCategories(int limit); // 查找指定数量的活动分类
 
     void update(Category category); // 更新
@@ -1,9 +1,11 @@
 package com.rabbuy.ecommerce.dao;
 
+import com.rabbuy.ecommerce.cache.CountCache;
 import com.rabbuy.ecommerce.dto.PaginatedResult;
 import com.rabbuy.ecommerce.entity.Category;
 import com.rabbuy.ecommerce.entity.Product;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
@@ -18,6 +20,9 @@ public class CategoryDaoImpl implements CategoryDao {
     @PersistenceContext(unitName = "default")
     private EntityManager em;
 
+    @Inject
+    private CountCache countCache;
+
     @Override
     @Transactional
     public void save(Category category) {
@@ -26,6 +31,7 @@ public class CategoryDaoImpl implements CategoryDao {
         } else {
             em.merge(category);
         }
+        countCache.invalidate(CountCache.CATEGORY);
     }
 
     @Override
@@ -47,12 +53,17 @@ public class CategoryDaoImpl implements CategoryDao {
 
         // 2. 查询总数
         TypedQuery<Long> countQuery = em.createQuery(countJpql, Long.class);
-        long totalItems = countQuery.getSingleResult();
+        long totalItems = countCache.get(CountCache.CATEGORY, countJpql, null, countQuery::getSingleResult);
         int totalPages = (int) Math.ceil((double) totalItems / pageSize);
 
         return new PaginatedResult<>(data, totalItems, page, totalPages);
     }
 
+    @Override
+    public List<Category> findAll() {
+        return em.createQuery("SELECT c FROM Category c", Category.class).getResultList();
+    }
+
     @Override
     public List<Category> findActiveCategories(int limit) {
         return em.createQuery("SELECT c FROM Category c WHERE c.status = '1'", Category.class)
@@ -71,6 +82,8 @@ public class CategoryDaoImpl implements CategoryDao {
         } else {
             throw new IllegalArgumentException("Category with id " + category.getCategoryId() + " not found for update.");
         }
+        countCache.invalidate(CountCache.CATEGORY);
+        countCache.invalidate(CountCache.PRODUCT); // 商品搜索可按主分类过滤
     }
 
     @Override
@@ -84,6 +97,8 @@ public class CategoryDaoImpl implements CategoryDao {
             Category managedCategory = em.merge(category);
             em.remove(managedCategory);
         }
+        countCache.invalidate(CountCache.CATEGORY);
+        countCache.invalidate(CountCache.PRODUCT);
     }
 
     @Override
@@ -1,8 +1,10 @@
 package com.rabbuy.ecommerce.dao;
 
+import com.rabbuy.ecommerce.cache.CountCache;
 import com.rabbuy.ecommerce.dto.PaginatedResult;
 import com.rabbuy.ecommerce.entity.Comment;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
@@ -20,10 +22,14 @@ public class CommentDaoImpl implements CommentDao {
     @PersistenceContext(unitName = "default")
     private EntityManager em;
 
+    @Inject
+    private CountCache countCache;
+
     @Override
     @Transactional
     public void save(Comment comment) {
         em.persist(comment);
+        countCache.invalidate(CountCache.COMMENT);
     }
 
     @Override
@@ -34,7 +40,9 @@ public class CommentDaoImpl implements CommentDao {
     @Override
     @Transactional
     public Comment update(Comment comment) {
-        return em.merge(comment);
+        Comment merged = em.merge(comment);
+        countCache.invalidate(CountCache.COMMENT); // 评分、图片可能改变
+        return merged;
     }
 
     @Override
@@ -46,6 +54,7 @@ public class CommentDaoImpl implements CommentDao {
             Comment managedComment = em.merge(comment);
             em.remove(managedComment);
         }
+        countCache.invalidate(CountCache.COMMENT);
     }
 
     @Override
@@ -102,7 +111,7 @@ public class CommentDaoImpl implements CommentDao {
         parameters.forEach(countQuery::setParameter);
 
         // 获取总数
-        long totalItems = countQuery.getSingleResult();
+        long totalItems = countCache.get(CountCache.COMMENT, countJpql.toString(), parameters, countQuery::getSingleResult);
         int totalPages = (int) Math.ceil((double) totalItems / pageSize);
 
         // 设置分页
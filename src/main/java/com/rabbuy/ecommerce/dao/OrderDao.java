@@ -1,7 +1,10 @@
 package com.rabbuy.ecommerce.dao;
 
+import com.rabbuy.ecommerce.dto.OrderDetailHeaderRow;
+import com.rabbuy.ecommerce.dto.OrderItemRow;
 import com.rabbuy.ecommerce.dto.PaginatedResult;
 import com.rabbuy.ecommerce.entity.Order;
+import com.rabbuy.ecommerce.entity.OrderItemStatus;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,20 +21,36 @@ public interface OrderDao {
      */
     Order update(Order order);
 
+    /**
+     * 把当前事务中的修改立即写入数据库 (触发 @PreUpdate)，之后读取实体时可以看到更新时间
+     */
+    void flush();
+
     /**
      * 根据 ID 查找订单，并立即加载其所有订单项
      */
     Optional<Order> findOrderWithItems(String orderId);
 
     /**
-     * (辅助 get_order_by_user_id_view) 查找用户的所有 Order ID
+     * 只读订单详情：订单头、用户和地址的标量投影 (不加载实体)
+     */
+    Optional<OrderDetailHeaderRow> findOrderDetailHeader(String orderId);
+
+    /**
+     * 只读订单详情：订单项的标量投影 (不加载实体)，按创建时间排序
+     */
+    List<OrderItemRow> findOrderItemRows(String orderId);
+
+    /**
+     * (辅助 get_order_by_user_id_view) 在数据库中按订单最新 Item 时间 (latest_item_time) 降序分页，返回当前页的 Order ID
+     * @param itemStatus 为 null 时不按状态过滤；否则只返回包含该状态 Item 的订单
      */
-    List<String> findOrderIdsByUserId(String userId);
+    List<String> findOrderIdsPageByUserId(String userId, OrderItemStatus itemStatus, int page, int pageSize);
 
     /**
-     * (辅助 get_order_by_user_id_view) 查找用户 ID 和特定 Item 状态的 Order ID
+     * (辅助 get_order_by_user_id_view) 统计用户的订单数量 (与 findOrderIdsPageByUserId 条件一致)
      */
-    List<String> findOrderIdsByUserIdAndItemStatus(String userId, String itemStatus);
+    long countOrdersByUserId(String userId, OrderItemStatus itemStatus);
 
     /**
      * (辅助 get_order_by_user_id_view) 根据 Order ID 列表查找所有 Orders 及其 Items
@@ -44,17 +63,13 @@ public interface OrderDao {
     PaginatedResult<Order> findAdminOrders(String query, int page, int pageSize);
 
     /**
-     * 按订单项状态查找所有订单 ID (管理员)
-     *
-     * @param itemStatus
-     * @return
+     * 管理员：在数据库中按订单最新 Item 时间 (latest_item_time) 降序分页，返回当前页的 Order ID
+     * @param itemStatus 为 null 时不按状态过滤
      */
-    List<String> findOrderIdsByItemStatus(String itemStatus);
+    List<String> findOrderIdsPage(OrderItemStatus itemStatus, int page, int pageSize);
 
     /**
-     * 查找所有订单 ID (管理员)
-     *
-     * @return
+     * 管理员：统计订单数量 (与 findOrderIdsPage 条件一致)
      */
-    List<String> findAllOrderIds();
+    long countOrders(OrderItemStatus itemStatus);
 }
\ No newline at end of file
@@ -1,7 +1,10 @@
 package com.rabbuy.ecommerce.dao;
 
+import com.rabbuy.ecommerce.dto.OrderDetailHeaderRow;
+import com.rabbuy.ecommerce.dto.OrderItemRow;
 import com.rabbuy.ecommerce.dto.PaginatedResult;
 import com.rabbuy.ecommerce.entity.Order;
+import com.rabbuy.ecommerce.entity.OrderItemStatus;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
@@ -34,6 +37,12 @@ public class OrderDaoImpl implements OrderDao {
         return em.merge(order);
     }
 
+    @Override
+    @Transactional
+    public void flush() {
+        em.flush();
+    }
+
     @Override
     public Optional<Order> findOrderWithItems(String orderId) {
         String jpql = "SELECT o FROM Order o " +
@@ -54,24 +63,41 @@ public class OrderDaoImpl implements OrderDao {
     }
 
     @Override
-    public List<String> findOrderIdsByUserId(String userId) {
-        // 从 OrderItem 反向查询其 Order ID
-        String jpql = "SELECT DISTINCT i.order.orderId FROM OrderItem i WHERE i.order.user.id = :userId";
-        return em.createQuery(jpql)
-                .setParameter("userId", userId)
-                .getResultList();
+    public Optional<OrderDetailHeaderRow> findOrderDetailHeader(String orderId) {
+        // 单行结果，不与订单项做笛卡尔积
+        String jpql = "SELECT new com.rabbuy.ecommerce.dto.OrderDetailHeaderRow(" +
+                "o.orderId, o.deliveryTime, o.orderStatus, o.totalAmount, u.id, u.username, " +
+                "a.addressId, a.addressTag, a.recipientName, a.phone, a.province, a.city, " +
+                "a.district, a.additionalAddress, a.postalCode, a.isDefault) " +
+                "FROM Order o JOIN o.user u LEFT JOIN o.address a " +
+                "WHERE o.orderId = :orderId";
+        return em.createQuery(jpql, OrderDetailHeaderRow.class)
+                .setParameter("orderId", orderId)
+                .getResultStream()
+                .findFirst();
     }
 
     @Override
-    public List<String> findOrderIdsByUserIdAndItemStatus(String userId, String itemStatus) {
-        //
-        String jpql = "SELECT DISTINCT i.order.orderId FROM OrderItem i WHERE i.order.user.id = :userId AND i.itemStatus = :itemStatus";
-        return em.createQuery(jpql)
-                .setParameter("userId", userId)
-                .setParameter("itemStatus", itemStatus)
+    public List<OrderItemRow> findOrderItemRows(String orderId) {
+        String jpql = "SELECT new com.rabbuy.ecommerce.dto.OrderItemRow(" +
+                "i.itemId, i.itemStatus, i.product, i.createdTime, i.updatedTime) " +
+                "FROM OrderItem i WHERE i.order.orderId = :orderId " +
+                "ORDER BY i.createdTime, i.itemId";
+        return em.createQuery(jpql, OrderItemRow.class)
+                .setParameter("orderId", orderId)
                 .getResultList();
     }
 
+    @Override
+    public List<String> findOrderIdsPageByUserId(String userId, OrderItemStatus itemStatus, int page, int pageSize) {
+        return findOrderIdsPage(userId, itemStatus, page, pageSize);
+    }
+
+    @Override
+    public long countOrdersByUserId(String userId, OrderItemStatus itemStatus) {
+        return countOrders(userId, itemStatus);
+    }
+
     @Override
     public List<Order> findOrdersWithItemsByOrderIds(List<String> orderIds) {
         if (orderIds == null || orderIds.isEmpty()) {
@@ -87,8 +113,8 @@ public class OrderDaoImpl implements OrderDao {
         return em.createQuery(jpql, Order.class)
                 .setParameter("orderIds", orderIds)
                 .getResultList();
-        // 注意：Django 视图中复杂的 "按组内最新时间排序" 和 "按组分页"
-        // 最好在获取数据后，在服务层(Service Layer)的 Java 代码中实现。
+        // 注意：排序和分页已由 findOrderIdsPage 在数据库中完成，这里只加载当前页的订单，
+        // 返回顺序不保证与 orderIds 一致
     }
 
     @Override
@@ -126,32 +152,52 @@ public class OrderDaoImpl implements OrderDao {
         return new PaginatedResult<>(data, totalItems, page, totalPages);
     }
 
-    /**
-     * 按订单项状态查找所有订单 ID (管理员)
-     *
-     * @param itemStatus
-     * @return
-     */
     @Override
-    public List<String> findOrderIdsByItemStatus(String itemStatus) {
-        // 我们需要查询 OrderItem 表，并按 itemStatus 过滤，
-        // 然后返回不重复的 Order ID 列表
-        String jpql = "SELECT DISTINCT i.order.orderId FROM OrderItem i WHERE i.itemStatus = :itemStatus";
-        return em.createQuery(jpql)
-                .setParameter("itemStatus", itemStatus)
-                .getResultList();
+    public List<String> findOrderIdsPage(OrderItemStatus itemStatus, int page, int pageSize) {
+        return findOrderIdsPage(null, itemStatus, page, pageSize);
     }
 
-    /**
-     * 查找所有订单 ID (管理员)
-     *
-     * @return
-     */
     @Override
-    public List<String> findAllOrderIds() {
-        // 直接从 Order 表返回所有 ID
-        String jpql = "SELECT o.orderId FROM Order o";
-        return em.createQuery(jpql)
+    public long countOrders(OrderItemStatus itemStatus) {
+        return countOrders(null, itemStatus);
+    }
+
+    // --- 订单分页辅助方法 ---
+
+    private List<String> findOrderIdsPage(String userId, OrderItemStatus itemStatus, int page, int pageSize) {
+        // 直接在 Order 表的冗余汇总列上排序分页，不需要读取订单项
+        StringBuilder jpql = new StringBuilder("SELECT o.orderId FROM Order o WHERE 1 = 1");
+        Map<String, Object> parameters = new HashMap<>();
+        appendOrderFilter(jpql, parameters, userId, itemStatus);
+        jpql.append(" ORDER BY o.latestItemTime DESC, o.orderId DESC");
+
+        TypedQuery<String> query = em.createQuery(jpql.toString(), String.class);
+        parameters.forEach(query::setParameter);
+
+        return query.setFirstResult((page - 1) * pageSize)
+                .setMaxResults(pageSize)
                 .getResultList();
     }
+
+    private long countOrders(String userId, OrderItemStatus itemStatus) {
+        StringBuilder jpql = new StringBuilder("SELECT COUNT(o) FROM Order o WHERE 1 = 1");
+        Map<String, Object> parameters = new HashMap<>();
+        appendOrderFilter(jpql, parameters, userId, itemStatus);
+
+        TypedQuery<Long> query = em.createQuery(jpql.toString(), Long.class);
+        parameters.forEach(query::setParameter);
+        return query.getSingleResult();
+    }
+
+    private void appendOrderFilter(StringBuilder jpql, Map<String, Object> parameters, String userId, OrderItemStatus itemStatus) {
+        if (userId != null) {
+            jpql.append(" AND o.user.id = :userId");
+            parameters.put("userId", userId);
+        }
+        if (itemStatus != null) {
+            // 状态过滤：订单中存在该状态的订单项
+            jpql.append(" AND EXISTS (SELECT 1 FROM OrderItem j WHERE j.order = o AND j.itemStatus = :itemStatus)");
+            parameters.put("itemStatus", itemStatus);
+        }
+    }
 }
\ No newline at end of file
@@ -1,7 +1,13 @@
 package com.rabbuy.ecommerce.dao;
 
+import com.rabbuy.ecommerce.dto.OrderItemStatusCounts;
 import com.rabbuy.ecommerce.entity.OrderItem;
+import com.rabbuy.ecommerce.entity.OrderItemStatus;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 // OrderItem 数据访问对象接口
 public interface OrderItemDao {
@@ -12,14 +18,15 @@ public interface OrderItemDao {
     Optional<OrderItem> findById(String itemId);
 
     /**
-     * 更新一个订单项 (主要用于更新状态)
+     * 根据 ID 批量查找订单项 (同时加载所属订单及用户)
+     * 不存在的 ID 不会出现在结果中
      */
-    OrderItem update(OrderItem item);
+    List<OrderItem> findByIds(Collection<String> itemIds);
 
     /**
-     * 统计指定用户的未读订单项数量
+     * 更新一个订单项 (主要用于更新状态)
      */
-    long countUnreadByUserId(String userId);
+    OrderItem update(OrderItem item);
 
     /**
      * 将指定用户的所有未读订单项标记为已读
@@ -28,10 +35,19 @@ public interface OrderItemDao {
     int markAllAsReadByUserId(String userId);
 
     /**
-     * 统计指定用户和特定状态的订单项数量
+     * 一条 GROUP BY item_status 查询同时统计各状态数量和未读数量
      * @param userId
-     * @param itemStatus
-     * @return
+     * @return 状态 -> 数量 (没有记录的状态不出现在 Map 中) 以及未读总数
+     */
+    OrderItemStatusCounts countStatusesByUserId(String userId);
+
+    /**
+     * 按订单逐个回调指定时间之后创建的订单中购买的商品 ID (已去重)，用于离线计算商品的共同购买关系
+     * 商品 ID 直接从 JSON 快照中取出，不解析整个快照；结果按订单 ID 排序后流式读取，内存中只保留当前订单
+     * @param since 起始时间
+     * @param excludedStatuses 不计入的状态 (例如已取消、已退款)
+     * @param basketConsumer 每个订单调用一次
      */
-    long countByUserIdAndItemStatus(String userId, String itemStatus);
+    void forEachOrderBasket(OffsetDateTime since, Collection<OrderItemStatus> excludedStatuses,
+                            Consumer<List<String>> basketConsumer);
 }
\ No newline at end of file
@@ -1,13 +1,27 @@
 package com.rabbuy.ecommerce.dao;
 
+import com.rabbuy.ecommerce.dto.OrderItemStatusCounts;
+import com.rabbuy.ecommerce.dto.OrderProductRow;
 import com.rabbuy.ecommerce.entity.OrderItem;
+import com.rabbuy.ecommerce.entity.OrderItemStatus;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
 
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class OrderItemDaoImpl implements OrderItemDao {
@@ -21,6 +35,58 @@ public class OrderItemDaoImpl implements OrderItemDao {
         return Optional.ofNullable(em.find(OrderItem.class, itemId));
     }
 
+    @Override
+    @Transactional // 流式读取期间保持同一个连接
+    public void forEachOrderBasket(OffsetDateTime since, Collection<OrderItemStatus> excludedStatuses,
+                                   Consumer<List<String>> basketConsumer) {
+        String jpql = "SELECT new com.rabbuy.ecommerce.dto.OrderProductRow(" +
+                "i.order.orderId, cast(function('json_unquote', function('json_extract', i.product, '$.id')) as String)) " +
+                "FROM OrderItem i " +
+                "WHERE i.createdTime >= :since AND i.itemStatus NOT IN :excludedStatuses " +
+                "ORDER BY i.order.orderId";
+        // MySQL 驱动只有在 fetch size 为 Integer.MIN_VALUE 时逐行读取，否则会先把整个结果集读入内存
+        try (Stream<OrderProductRow> rows = em.createQuery(jpql, OrderProductRow.class)
+                .setParameter("since", since)
+                .setParameter("excludedStatuses", excludedStatuses)
+                .setHint("org.hibernate.fetchSize", Integer.MIN_VALUE)
+                .setHint("org.hibernate.readOnly", true)
+                .getResultStream()) {
+            // 同一订单的行相邻，订单 ID 变化时交出上一个订单
+            String currentOrderId = null;
+            Set<String> basket = new LinkedHashSet<>();
+            for (Iterator<OrderProductRow> it = rows.iterator(); it.hasNext(); ) {
+                OrderProductRow row = it.next();
+                if (!row.orderId().equals(currentOrderId)) {
+                    if (!basket.isEmpty()) {
+                        basketConsumer.accept(new ArrayList<>(basket));
+                        basket.clear();
+                    }
+                    currentOrderId = row.orderId();
+                }
+                if (row.productId() != null) {
+                    basket.add(row.productId());
+                }
+            }
+            if (!basket.isEmpty()) {
+                basketConsumer.accept(new ArrayList<>(basket));
+            }
+        }
+    }
+
+    @Override
+    public List<OrderItem> findByIds(Collection<String> itemIds) {
+        if (itemIds == null || itemIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String jpql = "SELECT i FROM OrderItem i " +
+                "JOIN FETCH i.order o " +
+                "JOIN FETCH o.user " +
+                "WHERE i.itemId IN :itemIds";
+        return em.createQuery(jpql, OrderItem.class)
+                .setParameter("itemIds", itemIds)
+                .getResultList();
+    }
+
     @Override
     @Transactional
     public OrderItem update(OrderItem item) {
@@ -28,16 +94,6 @@ public class OrderItemDaoImpl implements OrderItemDao {
         return em.merge(item);
     }
 
-    @Override
-    public long countUnreadByUserId(String userId) {
-        // (get_order_notification_view)
-        // 通过 i.order.user.id 级联查询
-        String jpql = "SELECT COUNT(i) FROM OrderItem i WHERE i.order.user.id = :userId AND i.isRead = false";
-        return em.createQuery(jpql, Long.class)
-                .setParameter("userId", userId)
-                .getSingleResult();
-    }
-
     @Override
     @Transactional
     public int markAllAsReadByUserId(String userId) {
@@ -52,11 +108,19 @@ public class OrderItemDaoImpl implements OrderItemDao {
     }
 
     @Override
-    public long countByUserIdAndItemStatus(String userId, String itemStatus) {
-        String jpql = "SELECT COUNT(i) FROM OrderItem i WHERE i.order.user.id = :userId AND i.itemStatus = :itemStatus";
-        return em.createQuery(jpql, Long.class)
+    public OrderItemStatusCounts countStatusesByUserId(String userId) {
+        String jpql = "SELECT i.itemStatus, COUNT(i), SUM(CASE WHEN i.isRead = false THEN 1 ELSE 0 END) " +
+                "FROM OrderItem i WHERE i.order.user.id = :userId GROUP BY i.itemStatus";
+        List<Object[]> rows = em.createQuery(jpql, Object[].class)
                 .setParameter("userId", userId)
-                .setParameter("itemStatus", itemStatus)
-                .getSingleResult();
+                .getResultList();
+
+        Map<OrderItemStatus, Long> byStatus = new EnumMap<>(OrderItemStatus.class);
+        long unread = 0;
+        for (Object[] row : rows) {
+            byStatus.put((OrderItemStatus) row[0], ((Number) row[1]).longValue());
+            unread += ((Number) row[2]).longValue();
+        }
+        return new OrderItemStatusCounts(byStatus, unread);
     }
 }
\ No newline at end of file
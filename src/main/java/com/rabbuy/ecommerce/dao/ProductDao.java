@@ -1,11 +1,15 @@
 package com.rabbuy.ecommerce.dao;
 
 import com.rabbuy.ecommerce.dto.PaginatedResult;
-import com.rabbuy.ecommerce.dto.ProductSearchCriteria;
+import com.rabbuy.ecommerce.dto.ProductIndexRow;
+import com.rabbuy.ecommerce.dto.ProductListRow;
+import com.rabbuy.ecommerce.dto.ProductSummary;
 import com.rabbuy.ecommerce.dto.ProductStockStatus;
 import com.rabbuy.ecommerce.entity.Product;
 
 import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,17 +23,61 @@ public interface ProductDao {
     void logicalDelete(Product product); // 逻辑删除
     Optional<Product> findAdminById(String id);
 
+    /**
+     * 一次性加载多个商品 (IN 查询，不加锁)
+     */
+    List<Product> findByIds(Collection<String> ids);
+
+    /**
+     * 一次性查询多个商品的摘要 (所有状态，只取需要的列，images 只取第一张)
+     * 不存在的商品不出现在结果中
+     */
+    List<ProductSummary> findSummariesByIds(Collection<String> ids);
+
+    // --- 库存原子操作 ---
+
+    /**
+     * 条件扣减库存：UPDATE ... SET stock_quantity = stock_quantity - :n WHERE ... AND stock_quantity >= :n
+     * @return 库存充足并扣减成功返回 true，库存不足或商品不存在返回 false
+     */
+    boolean decrementStockIfAvailable(String productId, int quantity);
+
+    /**
+     * 原子增加库存 (例如退款恢复库存)
+     * @return 商品不存在时返回 false
+     */
+    boolean incrementStock(String productId, int quantity);
+
     // --- 首页查询 ---
-    List<Product> findLatestActiveProducts(int limit); // new_view
-    List<Product> findHotActiveProducts(double minRating, int limit); // hot_view (按评分排序)
+    List<ProductListRow> findLatestActiveListRows(int limit); // new_view
+    List<ProductListRow> findHotActiveListRows(double minRating, int limit); // hot_view (按评分排序)
 
     // --- 详情页查询 ---
     Optional<Product> findActiveById(String id); // get_details_view
-    List<Product> findActiveRecommendations(String keyword, String excludeProductId, int limit); // get_product_recommend_view
 
     // --- 搜索和列表查询 ---
-    // 用于客户搜索 (SearchView)
-    PaginatedResult<Product> findActiveByCriteria(ProductSearchCriteria criteria);
+    /**
+     * 按 ID 查询在售商品的列表字段，用于搜索索引命中或随机抽样后加载当前页
+     * 不保证返回顺序；期间被下架或删除的商品不会出现在结果中
+     */
+    List<ProductListRow> findActiveListRowsByIds(Collection<String> ids);
+
+    /**
+     * 全部在售商品的索引字段 (构造器表达式投影，不加载实体)，用于构建搜索索引
+     */
+    List<ProductIndexRow> findAllActiveIndexRows();
+
+    /**
+     * 管理员商品列表的游标分页：按 updated_time DESC, product_id DESC 排序，从 (afterUpdatedTime, afterProductId) 之后开始
+     * 不使用 OFFSET，翻到多深都只读取 limit 行
+     * @param afterUpdatedTime 为 null 时从第一条开始
+     */
+    List<Product> findAdminByKeywordAfter(String keyword, OffsetDateTime afterUpdatedTime, String afterProductId, int limit);
+
+    /**
+     * 管理员商品列表的总数 (游标分页时按需调用)
+     */
+    long countAdminByKeyword(String keyword);
 
     // 用于分类页 (get_subcategory_products_view)
     PaginatedResult<Product> findActiveBySubCategory(
@@ -37,6 +85,11 @@ public interface ProductDao {
             String sortField, int page, int pageSize
     );
 
+    /**
+     * 子分类下是否还有在售商品 (删除子分类前检查)；直接查询数据库，不使用缓存的总数
+     */
+    boolean existsActiveBySubCategory(String subCategoryId);
+
     // 用于管理后台 (get_product_view)
     PaginatedResult<Product> findAdminByKeyword(String keyword, int page, int pageSize);
 
@@ -44,7 +97,7 @@ public interface ProductDao {
     ProductStockStatus getStockStatus();
 
     /**
-     * 查找子分类下所有启用的商品（用于随机抽取）
+     * 查找子分类下所有启用商品的 ID（用于随机抽取，只读取主键列）
      */
-    List<Product> findActiveBySubCategoryForRandom(String subCategoryId);
+    List<String> findActiveIdsBySubCategory(String subCategoryId);
 }
\ No newline at end of file
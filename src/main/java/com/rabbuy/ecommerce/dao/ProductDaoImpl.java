@@ -1,16 +1,21 @@
 package com.rabbuy.ecommerce.dao;
 
+import com.rabbuy.ecommerce.cache.CountCache;
 import com.rabbuy.ecommerce.dto.PaginatedResult;
-import com.rabbuy.ecommerce.dto.ProductSearchCriteria;
+import com.rabbuy.ecommerce.dto.ProductIndexRow;
+import com.rabbuy.ecommerce.dto.ProductListRow;
+import com.rabbuy.ecommerce.dto.ProductSummary;
 import com.rabbuy.ecommerce.dto.ProductStockStatus;
 import com.rabbuy.ecommerce.entity.Product;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.persistence.TypedQuery;
 import jakarta.transaction.Transactional;
 
 import java.math.BigDecimal;
+import java.time.OffsetDateTime;
 import java.util.*;
 
 @ApplicationScoped
@@ -19,6 +24,19 @@ public class ProductDaoImpl implements ProductDao {
     @PersistenceContext(unitName = "default")
     private EntityManager em;
 
+    @Inject
+    private CountCache countCache;
+
+    /**
+     * 列表查询只取 ProductListRow 需要的列：不读取 TEXT / JSON 大字段，
+     * images 由 MySQL 的 JSON 函数只取出第一张 (空数组时为 null)，Hibernate 不再逐行解析 JSON
+     */
+    private static final String LIST_ROW_SELECT = "SELECT new com.rabbuy.ecommerce.dto.ProductListRow(" +
+            "p.productId, p.productName, p.price, " +
+            "cast(function('json_unquote', function('json_extract', p.images, '$[0]')) as String), " +
+            "p.productRating, p.createdTime, s.subCateName, c.categoryName) " +
+            "FROM Product p LEFT JOIN p.subCategory s LEFT JOIN s.category c ";
+
     // --- 基本 CRUD ---
 
     @Override
@@ -29,6 +47,7 @@ public class ProductDaoImpl implements ProductDao {
         } else {
             em.merge(product);
         }
+        countCache.invalidate(CountCache.PRODUCT);
     }
 
     @Override
@@ -45,6 +64,60 @@ public class ProductDaoImpl implements ProductDao {
         } else {
             throw new IllegalArgumentException("Product with id " + product.getProductId() + " not found for update.");
         }
+        countCache.invalidate(CountCache.PRODUCT); // 上架状态、分类、价格可能改变
+    }
+
+    @Override
+    public List<Product> findByIds(Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String jpql = "SELECT p FROM Product p WHERE p.productId IN :ids";
+        return em.createQuery(jpql, Product.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    @Override
+    public List<ProductSummary> findSummariesByIds(Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String jpql = "SELECT new com.rabbuy.ecommerce.dto.ProductSummary(" +
+                "p.productId, p.productName, p.price, " +
+                "cast(function('json_unquote', function('json_extract', p.images, '$[0]')) as String), " +
+                "p.status, p.isDeleted, p.stockQuantity) " +
+                "FROM Product p WHERE p.productId IN :ids";
+        return em.createQuery(jpql, ProductSummary.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    // --- 库存原子操作 ---
+    // JPQL 批量 UPDATE 绕过持久化上下文：行锁只在这一条语句上获取，不会先 SELECT 再 merge
+
+    @Override
+    @Transactional
+    public boolean decrementStockIfAvailable(String productId, int quantity) {
+        String jpql = "UPDATE Product p SET p.stockQuantity = p.stockQuantity - :quantity, p.updatedTime = :now " +
+                "WHERE p.productId = :id AND p.stockQuantity >= :quantity";
+        return em.createQuery(jpql)
+                .setParameter("quantity", quantity)
+                .setParameter("now", OffsetDateTime.now())
+                .setParameter("id", productId)
+                .executeUpdate() > 0;
+    }
+
+    @Override
+    @Transactional
+    public boolean incrementStock(String productId, int quantity) {
+        String jpql = "UPDATE Product p SET p.stockQuantity = p.stockQuantity + :quantity, p.updatedTime = :now " +
+                "WHERE p.productId = :id";
+        return em.createQuery(jpql)
+                .setParameter("quantity", quantity)
+                .setParameter("now", OffsetDateTime.now())
+                .setParameter("id", productId)
+                .executeUpdate() > 0;
     }
 
     @Override
@@ -72,24 +145,25 @@ public class ProductDaoImpl implements ProductDao {
         // 实现逻辑删除
         product.setDeleted(true);
         em.merge(product);
+        countCache.invalidate(CountCache.PRODUCT);
     }
 
     // --- 首页查询 ---
 
     @Override
-    public List<Product> findLatestActiveProducts(int limit) {
+    public List<ProductListRow> findLatestActiveListRows(int limit) {
         // 对应 new_view
-        String jpql = "SELECT p FROM Product p WHERE p.status = '1' AND p.isDeleted = false ORDER BY p.createdTime DESC";
-        return em.createQuery(jpql, Product.class)
+        String jpql = LIST_ROW_SELECT + "WHERE p.status = '1' AND p.isDeleted = false ORDER BY p.createdTime DESC";
+        return em.createQuery(jpql, ProductListRow.class)
                 .setMaxResults(limit)
                 .getResultList();
     }
 
     @Override
-    public List<Product> findHotActiveProducts(double minRating, int limit) {
+    public List<ProductListRow> findHotActiveListRows(double minRating, int limit) {
         // 对应 hot_view, Django '?' (random) 在 JPQL 中不易实现，改为按评分排序
-        String jpql = "SELECT p FROM Product p WHERE p.status = '1' AND p.isDeleted = false AND p.productRating >= :minRating ORDER BY p.productRating DESC, p.ratingNum DESC";
-        return em.createQuery(jpql, Product.class)
+        String jpql = LIST_ROW_SELECT + "WHERE p.status = '1' AND p.isDeleted = false AND p.productRating >= :minRating ORDER BY p.productRating DESC, p.ratingNum DESC";
+        return em.createQuery(jpql, ProductListRow.class)
                 .setParameter("minRating", minRating)
                 .setMaxResults(limit)
                 .getResultList();
@@ -113,63 +187,29 @@ public class ProductDaoImpl implements ProductDao {
         }
     }
 
-    @Override
-    public List<Product> findActiveRecommendations(String keyword, String excludeProductId, int limit) {
-        String jpql = "SELECT p FROM Product p " +
-                "LEFT JOIN FETCH p.subCategory s " +
-                "LEFT JOIN FETCH s.category " +
-                "WHERE p.productId != :excludeId AND p.status = '1' AND p.isDeleted = false " +
-                "AND (p.productName LIKE :keyword OR p.productDesc LIKE :keyword)";
-
-        return em.createQuery(jpql, Product.class)
-                .setParameter("excludeId", excludeProductId)
-                .setParameter("keyword", "%" + keyword.toLowerCase() + "%")
-                .setMaxResults(limit)
-                .getResultList();
-    }
-
 
     // --- 搜索和列表查询 (动态 JPQL) ---
 
     @Override
-    public PaginatedResult<Product> findActiveByCriteria(ProductSearchCriteria criteria) {
-        // 对应 SearchView
-        StringBuilder jpql = new StringBuilder("SELECT p FROM Product p " +
-                "LEFT JOIN FETCH p.subCategory s " +
-                "LEFT JOIN FETCH s.category " +
-                "WHERE p.status = '1' AND p.isDeleted = false");
-
-        StringBuilder countJpql = new StringBuilder("SELECT COUNT(p) FROM Product p WHERE p.status = '1' AND p.isDeleted = false");
-        Map<String, Object> parameters = new HashMap<>();
-
-        // 构建查询条件
-        buildSearchWhereClause(jpql, countJpql, parameters, criteria.keyword(), criteria.categoryId(), criteria.minPrice(), criteria.maxPrice());
-
-        // 构建排序
-        String orderBy = buildSearchOrderBy(criteria.sortField());
-        jpql.append(orderBy);
-
-        // 创建数据查询
-        TypedQuery<Product> query = em.createQuery(jpql.toString(), Product.class);
-        // 创建总数查询
-        TypedQuery<Long> countQuery = em.createQuery(countJpql.toString(), Long.class);
-
-        // 设置参数
-        parameters.forEach(query::setParameter);
-        parameters.forEach(countQuery::setParameter);
-
-        // 获取总记录数
-        long totalItems = countQuery.getSingleResult();
-        int totalPages = (int) Math.ceil((double) totalItems / criteria.pageSize());
-
-        // 设置分页
-        query.setFirstResult((criteria.page() - 1) * criteria.pageSize());
-        query.setMaxResults(criteria.pageSize());
-
-        // 获取数据
-        List<Product> data = query.getResultList();
+    public List<ProductListRow> findActiveListRowsByIds(Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String jpql = LIST_ROW_SELECT + "WHERE p.productId IN :ids AND p.status = '1' AND p.isDeleted = false";
+        return em.createQuery(jpql, ProductListRow.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
 
-        return new PaginatedResult<>(data, totalItems, criteria.page(), totalPages);
+    @Override
+    public List<ProductIndexRow> findAllActiveIndexRows() {
+        String jpql = "SELECT new com.rabbuy.ecommerce.dto.ProductIndexRow(" +
+                "p.productId, p.productName, p.productDesc, p.price, p.productRating, p.createdTime, " +
+                "s.subCateId, s.subCateName, c.categoryId, c.categoryName) " +
+                "FROM Product p LEFT JOIN p.subCategory s LEFT JOIN s.category c " +
+                "WHERE p.status = '1' AND p.isDeleted = false";
+        return em.createQuery(jpql, ProductIndexRow.class)
+                .getResultList();
     }
 
     @Override
@@ -196,7 +236,7 @@ public class ProductDaoImpl implements ProductDao {
         parameters.forEach(countQuery::setParameter);
 
         // 获取总数
-        long totalItems = countQuery.getSingleResult();
+        long totalItems = countCache.get(CountCache.PRODUCT, countJpql.toString(), parameters, countQuery::getSingleResult);
         int totalPages = (int) Math.ceil((double) totalItems / pageSize);
 
         // 设置分页
@@ -208,6 +248,18 @@ public class ProductDaoImpl implements ProductDao {
         return new PaginatedResult<>(data, totalItems, page, totalPages);
     }
 
+    @Override
+    public boolean existsActiveBySubCategory(String subCategoryId) {
+        // 删除前的检查，不经过 CountCache，只读取一行
+        String jpql = "SELECT p.productId FROM Product p " +
+                "WHERE p.status = '1' AND p.isDeleted = false AND p.subCategory.subCateId = :subCategoryId";
+        return !em.createQuery(jpql, String.class)
+                .setParameter("subCategoryId", subCategoryId)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+    }
+
     @Override
     public PaginatedResult<Product> findAdminByKeyword(String keyword, int page, int pageSize) {
         StringBuilder jpql = new StringBuilder("SELECT p FROM Product p " +
@@ -232,7 +284,7 @@ public class ProductDaoImpl implements ProductDao {
         parameters.forEach(query::setParameter);
         parameters.forEach(countQuery::setParameter);
 
-        long totalItems = countQuery.getSingleResult();
+        long totalItems = countCache.get(CountCache.PRODUCT, countJpql.toString(), parameters, countQuery::getSingleResult);
         int totalPages = (int) Math.ceil((double) totalItems / pageSize);
 
         query.setFirstResult((page - 1) * pageSize);
@@ -243,6 +295,46 @@ public class ProductDaoImpl implements ProductDao {
         return new PaginatedResult<>(data, totalItems, page, totalPages);
     }
 
+    @Override
+    public List<Product> findAdminByKeywordAfter(String keyword, OffsetDateTime afterUpdatedTime, String afterProductId, int limit) {
+        StringBuilder jpql = new StringBuilder("SELECT p FROM Product p " +
+                "LEFT JOIN FETCH p.subCategory s " +
+                "LEFT JOIN FETCH s.category c " +
+                "WHERE p.isDeleted = false");
+        Map<String, Object> parameters = new HashMap<>();
+        appendAdminKeywordFilter(jpql, parameters, keyword);
+
+        if (afterUpdatedTime != null) {
+            // 从上一页最后一条之后继续 (id 作为相同时间的次级排序键)
+            jpql.append(" AND (p.updatedTime < :afterTime OR (p.updatedTime = :afterTime AND p.productId < :afterId))");
+            parameters.put("afterTime", afterUpdatedTime);
+            parameters.put("afterId", afterProductId);
+        }
+        jpql.append(" ORDER BY p.updatedTime DESC, p.productId DESC");
+
+        TypedQuery<Product> query = em.createQuery(jpql.toString(), Product.class);
+        parameters.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public long countAdminByKeyword(String keyword) {
+        StringBuilder jpql = new StringBuilder("SELECT COUNT(p) FROM Product p WHERE p.isDeleted = false");
+        Map<String, Object> parameters = new HashMap<>();
+        appendAdminKeywordFilter(jpql, parameters, keyword);
+
+        TypedQuery<Long> query = em.createQuery(jpql.toString(), Long.class);
+        parameters.forEach(query::setParameter);
+        return countCache.get(CountCache.PRODUCT, jpql.toString(), parameters, query::getSingleResult);
+    }
+
+    private void appendAdminKeywordFilter(StringBuilder jpql, Map<String, Object> parameters, String keyword) {
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            jpql.append(" AND (p.productName LIKE :keyword OR p.productId LIKE :keyword)");
+            parameters.put("keyword", "%" + keyword.toLowerCase() + "%");
+        }
+    }
+
     // --- 库存查询 ---
 
     @Override
@@ -315,10 +407,10 @@ public class ProductDaoImpl implements ProductDao {
     // ... (保留所有旧方法) ...
 
     @Override
-    public List<Product> findActiveBySubCategoryForRandom(String subCategoryId) {
-        // 仅查询，不排序不分页，后续在 Service 层 shuffle
-        String jpql = "SELECT p FROM Product p WHERE p.subCategory.subCateId = :subCategoryId AND p.status = '1' AND p.isDeleted = false";
-        return em.createQuery(jpql, Product.class)
+    public List<String> findActiveIdsBySubCategory(String subCategoryId) {
+        // 仅查询 ID，不排序不分页，后续由 ProductSamplingService 抽样
+        String jpql = "SELECT p.productId FROM Product p WHERE p.subCategory.subCateId = :subCategoryId AND p.status = '1' AND p.isDeleted = false";
+        return em.createQuery(jpql, String.class)
                 .setParameter("subCategoryId", subCategoryId)
                 .getResultList();
     }
@@ -1,9 +1,11 @@
 package com.rabbuy.ecommerce.dao;
 
+import com.rabbuy.ecommerce.cache.CountCache;
 import com.rabbuy.ecommerce.dto.PaginatedResult;
 import jakarta.persistence.TypedQuery;
 import com.rabbuy.ecommerce.entity.SubCategory;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
@@ -17,6 +19,9 @@ public class SubCategoryDaoImpl implements SubCategoryDao {
     @PersistenceContext(unitName = "default")
     private EntityManager em;
 
+    @Inject
+    private CountCache countCache;
+
     @Override
     public Optional<SubCategory> findById(String id) {
         return Optional.ofNullable(em.find(SubCategory.class, id));
@@ -37,7 +42,7 @@ public class SubCategoryDaoImpl implements SubCategoryDao {
         TypedQuery<SubCategory> query = em.createQuery(jpql, SubCategory.class);
         TypedQuery<Long> countQuery = em.createQuery(countJpql, Long.class);
 
-        long totalItems = countQuery.getSingleResult();
+        long totalItems = countCache.get(CountCache.SUB_CATEGORY, countJpql, null, countQuery::getSingleResult);
         int totalPages = (int) Math.ceil((double) totalItems / pageSize);
 
         query.setFirstResult((page - 1) * pageSize);
@@ -61,12 +66,16 @@ public class SubCategoryDaoImpl implements SubCategoryDao {
     @Transactional
     public void save(SubCategory subCategory) {
         em.persist(subCategory);
+        countCache.invalidate(CountCache.SUB_CATEGORY);
     }
 
     @Override
     @Transactional
     public SubCategory update(SubCategory subCategory) {
-        return em.merge(subCategory);
+        SubCategory merged = em.merge(subCategory);
+        countCache.invalidate(CountCache.SUB_CATEGORY);
+        countCache.invalidate(CountCache.PRODUCT); // 子分类可能被移到其他主分类
+        return merged;
     }
 
     @Override
@@ -78,6 +87,8 @@ public class SubCategoryDaoImpl implements SubCategoryDao {
             SubCategory managed = em.merge(subCategory);
             em.remove(managed);
         }
+        countCache.invalidate(CountCache.SUB_CATEGORY);
+        countCache.invalidate(CountCache.PRODUCT);
     }
 
     @Override
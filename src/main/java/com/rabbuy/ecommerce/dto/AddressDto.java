@@ -1,5 +1,6 @@
 package com.rabbuy.ecommerce.dto;
 
+import com.rabbuy.ecommerce.entity.Address;
 
 public record AddressDto(
         String id,
@@ -13,4 +14,24 @@ public record AddressDto(
         String postalCode,
         boolean isDefault
 ) {
-}
\ No newline at end of file
+    /**
+     * 工厂方法：address 为 null 时返回 null
+     */
+    public static AddressDto fromEntity(Address address) {
+        if (address == null) {
+            return null;
+        }
+        return new AddressDto(
+                address.getAddressId(),
+                address.getAddressTag(),
+                address.getRecipientName(),
+                address.getPhone(),
+                address.getProvince(),
+                address.getCity(),
+                address.getDistrict(),
+                address.getAdditionalAddress(),
+                address.getPostalCode(),
+                address.isDefault()
+        );
+    }
+}
@@ -0,0 +1,31 @@
+package com.rabbuy.ecommerce.dto;
+
+import java.util.List;
+
+/**
+ * 管理员批量更新订单项状态的结果
+ * @param succeeded 成功数量
+ * @param failed 失败数量
+ * @param results 每个订单项的结果 (与请求顺序一致)
+ */
+public record AdminOrderItemBatchResultDto(
+        int succeeded,
+        int failed,
+        List<ItemResult> results
+) {
+
+    /**
+     * 单个订单项的处理结果
+     * @param itemId
+     * @param success
+     * @param status 处理后的状态 (失败时为当前状态或 null)
+     * @param message 失败原因 (成功时为 null)
+     */
+    public record ItemResult(
+            String itemId,
+            boolean success,
+            String status,
+            String message
+    ) {
+    }
+}
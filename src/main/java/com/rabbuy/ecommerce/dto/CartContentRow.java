@@ -0,0 +1,17 @@
+package com.rabbuy.ecommerce.dto;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * 购物车内容的投影 (JPQL 构造器表达式的目标)
+ * 不是受管实体：修改购物车时由调用方按 version 条件更新，Hibernate 不需要保存 products 的快照做脏检查
+ */
+public record CartContentRow(
+        String cartId,
+        long version,
+        List<CartItem> products,
+        OffsetDateTime createdTime,
+        OffsetDateTime updatedTime
+) {
+}
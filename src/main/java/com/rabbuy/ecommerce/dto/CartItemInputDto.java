@@ -0,0 +1,12 @@
+package com.rabbuy.ecommerce.dto;
+
+/**
+ * 购物车单个商品的增量修改请求
+ * version 可选：带上时只有购物车仍是该版本才会修改，否则返回 409
+ */
+public record CartItemInputDto(
+        String productId, // 添加时使用；修改数量时由路径给出
+        Integer count,
+        Long version
+) {
+}
@@ -0,0 +1,29 @@
+package com.rabbuy.ecommerce.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * cart_line LEFT JOIN 商品的一行 (JPQL 构造器表达式的目标)
+ * 商品已被物理删除时 summaryProductId 及之后的列都为 null
+ */
+public record CartLineRow(
+        String productId,
+        int quantity,
+        String summaryProductId,
+        String productName,
+        BigDecimal price,
+        String image,
+        String status,
+        Boolean deleted,
+        Integer stockQuantity
+) {
+    /**
+     * 商品摘要；商品不存在时返回 null
+     */
+    public ProductSummary summary() {
+        if (summaryProductId == null) {
+            return null;
+        }
+        return new ProductSummary(summaryProductId, productName, price, image, status, Boolean.TRUE.equals(deleted), stockQuantity);
+    }
+}
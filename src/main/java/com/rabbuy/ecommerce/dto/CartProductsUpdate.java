@@ -0,0 +1,14 @@
+package com.rabbuy.ecommerce.dto;
+
+import java.util.List;
+
+/**
+ * 批量写回购物车时的一项：购物车仍是 expectedVersion 时写入 products，并把版本号设为 newVersion
+ */
+public record CartProductsUpdate(
+        String cartId,
+        List<CartItem> products,
+        long expectedVersion,
+        long newVersion
+) {
+}
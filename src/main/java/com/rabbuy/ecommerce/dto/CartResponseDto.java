@@ -7,6 +7,7 @@ public record CartResponseDto(
         String id, // cart_id
         String user, // user_id
         List<CartDetailItemDto> products,
+        long version, // 乐观锁版本号，修改购物车时带上
         OffsetDateTime createdTime,
         OffsetDateTime updatedTime
 ) {
@@ -0,0 +1,10 @@
+package com.rabbuy.ecommerce.dto;
+
+/**
+ * 购物车修改后的版本号，客户端下次修改时带上
+ */
+public record CartVersionDto(
+        String id, // cart_id
+        long version
+) {
+}
@@ -0,0 +1,11 @@
+package com.rabbuy.ecommerce.dto;
+
+import java.util.List;
+
+// 游标分页结果：不需要页码，总数可选
+public record CursorResult<T>(
+        List<T> data,       // 当前页的数据
+        Long totalItems,    // 总记录数 (未请求时为 null，省去 COUNT 查询)
+        String nextCursor   // 下一页的续页令牌 (没有更多结果时为 null)
+) {
+}
@@ -0,0 +1,14 @@
+package com.rabbuy.ecommerce.dto;
+
+import java.util.List;
+
+// 带分面统计的分页结果 (前四个字段与 PaginatedResult 相同)
+public record FacetedResult<T>(
+        List<T> data,      // 当前页的数据
+        long totalItems,   // 总记录数
+        int currentPage,   // 当前页码
+        int totalPages,    // 总页数
+        ProductFacetsDto facets,
+        String nextCursor  // 游标分页的续页令牌 (没有更多结果时为 null)
+) {
+}
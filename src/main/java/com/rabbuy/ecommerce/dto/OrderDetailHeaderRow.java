@@ -0,0 +1,33 @@
+package com.rabbuy.ecommerce.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * 订单详情的只读投影：订单头 + 用户 + 地址 (JPQL 构造器表达式的目标，不是托管实体)
+ */
+public record OrderDetailHeaderRow(
+        String orderId,
+        String deliveryTime,
+        String orderStatus,
+        BigDecimal totalAmount,
+        String userId,
+        String username,
+        String addressId,
+        String addressTag,
+        String recipientName,
+        String phone,
+        String province,
+        String city,
+        String district,
+        String additionalAddress,
+        String postalCode,
+        Boolean isDefault
+) {
+    public AddressDto toAddressDto() {
+        if (addressId == null) {
+            return null;
+        }
+        return new AddressDto(addressId, addressTag, recipientName, phone, province, city, district,
+                additionalAddress, postalCode, Boolean.TRUE.equals(isDefault));
+    }
+}
@@ -1,7 +1,11 @@
 package com.rabbuy.ecommerce.dto;
 
+import com.rabbuy.ecommerce.entity.Order;
+import com.rabbuy.ecommerce.entity.OrderItem;
+
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 
@@ -19,4 +23,71 @@ public record OrderDetailResponseDto(
 
         AddressDto address
 ) {
-}
\ No newline at end of file
+    /**
+     * 工厂方法：从已加载 items / user / address 的订单实体构建 (不再访问数据库)
+     */
+    public static OrderDetailResponseDto fromEntity(Order order) {
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        OffsetDateTime createdTime = null; // (最早的 item 创建时间)
+        List<OrderItemResponseDto> itemDtos = new ArrayList<>();
+
+        for (OrderItem item : order.getItems()) {
+            totalAmount = totalAmount.add(subtotal(item.getProduct()));
+            createdTime = earliest(createdTime, item.getCreatedTime());
+            itemDtos.add(OrderItemResponseDto.fromEntity(item));
+        }
+
+        return new OrderDetailResponseDto(
+                order.getOrderId(),
+                order.getDeliveryTime(),
+                itemDtos,
+                order.getOrderStatus(),
+                order.getTotalAmount() != null ? order.getTotalAmount() : totalAmount,
+                createdTime,
+                order.getUser().getId(),
+                order.getUser().getUsername(),
+                AddressDto.fromEntity(order.getAddress())
+        );
+    }
+
+    /**
+     * 工厂方法：从只读投影构建 (订单详情查询)
+     */
+    public static OrderDetailResponseDto fromRows(OrderDetailHeaderRow header, List<OrderItemRow> items) {
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        OffsetDateTime createdTime = null;
+        List<OrderItemResponseDto> itemDtos = new ArrayList<>(items.size());
+
+        for (OrderItemRow item : items) {
+            totalAmount = totalAmount.add(subtotal(item.product()));
+            createdTime = earliest(createdTime, item.createdTime());
+            itemDtos.add(OrderItemResponseDto.fromRow(item));
+        }
+
+        return new OrderDetailResponseDto(
+                header.orderId(),
+                header.deliveryTime(),
+                itemDtos,
+                header.orderStatus(),
+                header.totalAmount() != null ? header.totalAmount() : totalAmount, // 旧数据尚未回填 total_amount
+                createdTime,
+                header.userId(),
+                header.username(),
+                header.toAddressDto()
+        );
+    }
+
+    private static BigDecimal subtotal(ProductSnapshot snapshot) {
+        if (snapshot == null || snapshot.getPrice() == null) {
+            return BigDecimal.ZERO;
+        }
+        return snapshot.getPrice().multiply(BigDecimal.valueOf(snapshot.getCount()));
+    }
+
+    private static OffsetDateTime earliest(OffsetDateTime current, OffsetDateTime candidate) {
+        if (candidate == null) {
+            return current;
+        }
+        return (current == null || candidate.isBefore(current)) ? candidate : current;
+    }
+}
@@ -1,5 +1,8 @@
 package com.rabbuy.ecommerce.dto;
 
+import com.rabbuy.ecommerce.entity.OrderItem;
+import com.rabbuy.ecommerce.entity.OrderItemStatus;
+
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 
@@ -14,4 +17,24 @@ public record OrderItemResponseDto(
         String itemStatus,
         OffsetDateTime updatedTime
 ) {
-}
\ No newline at end of file
+    public static OrderItemResponseDto fromEntity(OrderItem item) {
+        return of(item.getItemId(), item.getItemStatus(), item.getProduct(), item.getUpdatedTime());
+    }
+
+    public static OrderItemResponseDto fromRow(OrderItemRow row) {
+        return of(row.itemId(), row.itemStatus(), row.product(), row.updatedTime());
+    }
+
+    private static OrderItemResponseDto of(String itemId, OrderItemStatus itemStatus, ProductSnapshot snapshot, OffsetDateTime updatedTime) {
+        return new OrderItemResponseDto(
+                snapshot.getId(),
+                snapshot.getName(),
+                snapshot.getPrice(),
+                snapshot.getImage(),
+                snapshot.getCount(),
+                itemId,
+                itemStatus.text(),
+                updatedTime
+        );
+    }
+}
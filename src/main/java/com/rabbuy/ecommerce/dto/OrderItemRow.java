@@ -0,0 +1,17 @@
+package com.rabbuy.ecommerce.dto;
+
+import com.rabbuy.ecommerce.entity.OrderItemStatus;
+
+import java.time.OffsetDateTime;
+
+/**
+ * 订单详情的只读投影：订单项行 (JPQL 构造器表达式的目标，不是托管实体)
+ */
+public record OrderItemRow(
+        String itemId,
+        OrderItemStatus itemStatus,
+        ProductSnapshot product,
+        OffsetDateTime createdTime,
+        OffsetDateTime updatedTime
+) {
+}
@@ -0,0 +1,17 @@
+package com.rabbuy.ecommerce.dto;
+
+import com.rabbuy.ecommerce.entity.OrderItemStatus;
+
+import java.util.Map;
+
+/**
+ * 用户订单项按状态分组的计数，以及未读数量 (一条 GROUP BY 查询的结果)
+ */
+public record OrderItemStatusCounts(
+        Map<OrderItemStatus, Long> byStatus, // item_status -> count
+        long unread
+) {
+    public long count(OrderItemStatus itemStatus) {
+        return byStatus.getOrDefault(itemStatus, 0L);
+    }
+}
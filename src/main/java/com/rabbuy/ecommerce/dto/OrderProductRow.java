@@ -0,0 +1,10 @@
+package com.rabbuy.ecommerce.dto;
+
+/**
+ * 订单与其中购买的商品 ID (JPQL 构造器表达式的目标，用于计算商品共同购买关系)
+ */
+public record OrderProductRow(
+        String orderId,
+        String productId
+) {
+}
@@ -0,0 +1,51 @@
+package com.rabbuy.ecommerce.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 游标分页 (keyset / seek) 的续页令牌
+ * 令牌对客户端不透明：内容是上一页最后一条记录的排序键和 ID，Base64URL 编码
+ */
+public final class PageCursor {
+
+    private static final String VERSION = "1";
+    private static final String SEPARATOR = "\u001F"; // 单元分隔符，不会出现在 ID / 数字中
+
+    private PageCursor() {
+    }
+
+    /**
+     * 编码排序键 (null 编码为空串)
+     */
+    public static String encode(String... parts) {
+        StringBuilder raw = new StringBuilder(VERSION);
+        for (String part : parts) {
+            raw.append(SEPARATOR).append(part != null ? part : "");
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解码令牌；空串解码为 null
+     * @param expectedParts 排序键的个数
+     * @throws IllegalArgumentException 令牌格式不正确
+     */
+    public static String[] decode(String token, int expectedParts) throws IllegalArgumentException {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        String[] fields = raw.split(SEPARATOR, -1);
+        if (fields.length != expectedParts + 1 || !VERSION.equals(fields[0])) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        String[] parts = new String[expectedParts];
+        for (int i = 0; i < expectedParts; i++) {
+            parts[i] = fields[i + 1].isEmpty() ? null : fields[i + 1];
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,33 @@
+package com.rabbuy.ecommerce.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 搜索结果的分面统计
+ * 每个维度忽略自身的筛选条件 (例如选中某个分类后，分类分面仍然给出其他分类的数量)
+ * @param categories 主分类 -> 数量 (忽略分类和子分类筛选)
+ * @param subCategories 子分类 -> 数量 (忽略子分类筛选)
+ * @param priceBuckets 价格区间 -> 数量 (忽略价格筛选)
+ * @param ratingBands 评分 >= minRating 的数量 (应用全部筛选)
+ */
+public record ProductFacetsDto(
+        List<FacetCount> categories,
+        List<FacetCount> subCategories,
+        List<PriceBucket> priceBuckets,
+        List<RatingBand> ratingBands
+) {
+
+    public record FacetCount(String id, String name, long count) {
+    }
+
+    /**
+     * @param min 包含
+     * @param max 不包含；最后一个区间为 null (无上限)
+     */
+    public record PriceBucket(BigDecimal min, BigDecimal max, long count) {
+    }
+
+    public record RatingBand(double minRating, long count) {
+    }
+}
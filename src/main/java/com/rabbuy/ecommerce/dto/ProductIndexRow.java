@@ -0,0 +1,42 @@
+package com.rabbuy.ecommerce.dto;
+
+import com.rabbuy.ecommerce.entity.Category;
+import com.rabbuy.ecommerce.entity.Product;
+import com.rabbuy.ecommerce.entity.SubCategory;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * 搜索索引所需的商品字段 (JPQL 构造器表达式的目标，不加载 images / details 等 JSON 列)
+ */
+public record ProductIndexRow(
+        String productId,
+        String productName,
+        String productDesc,
+        BigDecimal price,
+        Double productRating,
+        OffsetDateTime createdTime,
+        String subCategoryId,
+        String subCategoryName,
+        String categoryId,
+        String categoryName
+) {
+    public static ProductIndexRow fromEntity(Product product) {
+        SubCategory subCategory = product.getSubCategory();
+        Category category = subCategory != null ? subCategory.getCategory() : null;
+
+        return new ProductIndexRow(
+                product.getProductId(),
+                product.getProductName(),
+                product.getProductDesc(),
+                product.getPrice(),
+                product.getProductRating(),
+                product.getCreatedTime(),
+                subCategory != null ? subCategory.getSubCateId() : null,
+                subCategory != null ? subCategory.getSubCateName() : null,
+                category != null ? category.getCategoryId() : null,
+                category != null ? category.getCategoryName() : null
+        );
+    }
+}
@@ -34,17 +34,33 @@ public record ProductListDto(
     }
 
 
-    public static ProductListDto fromHomeView(Product product) {
-        String imageUrl = (product.getImages() != null && !product.getImages().isEmpty()) ? product.getImages().get(0) : null;
-
+    /**
+     * 工厂方法：用于首页和分类页 (投影查询结果，不含描述和分类名)
+     */
+    public static ProductListDto fromHomeView(ProductListRow row) {
         return new ProductListDto(
-                product.getProductId(),
-                product.getProductName(),
+                row.productId(),
+                row.productName(),
                 null, // 首页不需要描述
-                product.getPrice(),
-                imageUrl,
+                row.price(),
+                row.image(),
                 null, // 首页不需要分类名
                 null
         );
     }
+
+    /**
+     * 工厂方法：用于搜索列表 (描述来自搜索索引，不从数据库读取)
+     */
+    public static ProductListDto fromRow(ProductListRow row, String description) {
+        return new ProductListDto(
+                row.productId(),
+                row.productName(),
+                description,
+                row.price(),
+                row.image(),
+                row.subCategoryName() != null ? row.subCategoryName() : "Unknown",
+                row.categoryName() != null ? row.categoryName() : "Unknown"
+        );
+    }
 }
\ No newline at end of file
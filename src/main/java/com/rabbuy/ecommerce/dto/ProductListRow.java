@@ -0,0 +1,20 @@
+package com.rabbuy.ecommerce.dto;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * 商品列表所需的字段 (JPQL 构造器表达式的目标，只读)
+ * 不加载 product_desc / product_details，images 只在数据库中取出第一张
+ */
+public record ProductListRow(
+        String productId,
+        String productName,
+        BigDecimal price,
+        String image,
+        Double productRating,
+        OffsetDateTime createdTime,
+        String subCategoryName,
+        String categoryName
+) {
+}
@@ -6,10 +6,12 @@ import java.math.BigDecimal;
 public record ProductSearchCriteria(
         String keyword,     // q
         String categoryId,    // category
+        String subCategoryId, // 子分类商品列表 (/category/sub/product) 使用
         BigDecimal minPrice,  // sortMin
         BigDecimal maxPrice,  // sortMax
         String sortField,   // sortField (e.g., 'default', 'created_time', 'price')
         int page,           // page
-        int pageSize        // pageSize
+        int pageSize,       // pageSize
+        String cursor       // 续页令牌 (上一页返回的 nextCursor)；非空时忽略 page
 ) {
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.rabbuy.ecommerce.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * 购物车等场景需要的商品实时摘要 (JPQL 构造器表达式的目标，只读，可在多个请求间共享)
+ * 包含所有状态的商品，调用方用 isPurchasable 判断是否可购买
+ */
+public record ProductSummary(
+        String productId,
+        String productName,
+        BigDecimal price,
+        String image,
+        String status,
+        boolean deleted,
+        Integer stockQuantity
+) {
+    /**
+     * 未删除、已上架且有库存
+     */
+    public boolean isPurchasable() {
+        return !deleted && "1".equals(status) && stockQuantity != null && stockQuantity > 0;
+    }
+}
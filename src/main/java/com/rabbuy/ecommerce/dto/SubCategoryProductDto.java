@@ -32,4 +32,17 @@ public record SubCategoryProductDto(
                 product.getCreatedTime() //
         );
     }
+
+    /**
+     * 工厂方法：从投影查询结果转换为 DTO
+     */
+    public static SubCategoryProductDto fromRow(ProductListRow row) {
+        return new SubCategoryProductDto(
+                row.productId(),
+                row.productName(),
+                row.price(),
+                row.image(),
+                row.createdTime()
+        );
+    }
 }
\ No newline at end of file
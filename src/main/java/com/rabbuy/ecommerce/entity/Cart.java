@@ -29,6 +29,11 @@ public class Cart {
     @Column(name = "products", nullable = false, columnDefinition = "json")
     private List<CartItem> products = new ArrayList<>();
 
+    // 乐观锁版本号：每次修改购物车时加 1，客户端可带上读取到的版本号，避免多个标签页互相覆盖
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
     @Column(name = "created_time", nullable = false, updatable = false, columnDefinition = "TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP")
     private OffsetDateTime createdTime;
 
@@ -68,6 +73,9 @@ public class Cart {
         this.products = (products == null) ? new ArrayList<>() : products; // 防止 null
     }
 
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
     public OffsetDateTime getCreatedTime() { return createdTime; }
     public void setCreatedTime(OffsetDateTime createdTime) { this.createdTime = createdTime; }
     public OffsetDateTime getUpdatedTime() { return updatedTime; }
@@ -0,0 +1,61 @@
+package com.rabbuy.ecommerce.entity;
+
+import jakarta.persistence.*;
+import java.time.OffsetDateTime;
+
+/**
+ * 购物车中的一个商品 (cart.storage=lines 时使用，取代 cart_cart.products 的 JSON)
+ * 每行一个商品，修改数量只更新一行；product_id 上的索引用于查找包含某个商品的购物车
+ */
+@Entity
+@IdClass(CartLineId.class)
+@Table(name = "cart_line", indexes = {
+        @Index(name = "idx_cart_line_product", columnList = "product_id")
+})
+public class CartLine {
+
+    @Id
+    @Column(name = "cart_id", nullable = false, updatable = false, columnDefinition = "CHAR(32)")
+    private String cartId;
+
+    @Id
+    @Column(name = "product_id", nullable = false, updatable = false, columnDefinition = "CHAR(32)")
+    private String productId;
+
+    @Column(name = "quantity", nullable = false)
+    private int quantity;
+
+    // 购物车内的显示顺序 (与原 JSON 数组顺序一致，新商品追加到末尾)
+    @Column(name = "position", nullable = false)
+    private int position;
+
+    @Column(name = "created_time", nullable = false, updatable = false, columnDefinition = "TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP")
+    private OffsetDateTime createdTime;
+
+    // JPA 需要无参构造函数
+    public CartLine() {
+    }
+
+    public CartLine(String cartId, String productId, int quantity, int position) {
+        this.cartId = cartId;
+        this.productId = productId;
+        this.quantity = quantity;
+        this.position = position;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdTime == null) {
+            createdTime = OffsetDateTime.now();
+        }
+    }
+
+    // --- Getters and Setters ---
+    public String getCartId() { return cartId; }
+    public String getProductId() { return productId; }
+    public int getQuantity() { return quantity; }
+    public void setQuantity(int quantity) { this.quantity = quantity; }
+    public int getPosition() { return position; }
+    public void setPosition(int position) { this.position = position; }
+    public OffsetDateTime getCreatedTime() { return createdTime; }
+}
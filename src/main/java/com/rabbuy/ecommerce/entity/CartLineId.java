@@ -0,0 +1,40 @@
+package com.rabbuy.ecommerce.entity;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * CartLine 的联合主键 (cart_id, product_id)
+ */
+public class CartLineId implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String cartId;
+    private String productId;
+
+    // JPA 需要无参构造函数
+    public CartLineId() {
+    }
+
+    public CartLineId(String cartId, String productId) {
+        this.cartId = cartId;
+        this.productId = productId;
+    }
+
+    public String getCartId() { return cartId; }
+    public String getProductId() { return productId; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CartLineId that = (CartLineId) o;
+        return Objects.equals(cartId, that.cartId) && Objects.equals(productId, that.productId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(cartId, productId);
+    }
+}
@@ -4,11 +4,17 @@ import jakarta.persistence.*;
 import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
+import com.rabbuy.ecommerce.dto.ProductSnapshot;
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "order_order")
+@Table(name = "order_order", indexes = {
+        @Index(name = "idx_order_user_latest", columnList = "user_id, latest_item_time"),
+        @Index(name = "idx_order_latest", columnList = "latest_item_time")
+})
 public class Order {
 
     @Id
@@ -43,6 +49,20 @@ public class Order {
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<OrderItem> items = new ArrayList<>();
 
+    // --- 订单汇总 (冗余字段，订单项变化时由 refreshSummary() 维护，列表页直接在这些列上排序分页) ---
+
+    // 所有订单项 price * count 之和
+    @Column(name = "total_amount", precision = 12, scale = 2)
+    private BigDecimal totalAmount;
+
+    // 订单项中最新的 created_time
+    @Column(name = "latest_item_time", columnDefinition = "TIMESTAMP WITH TIME ZONE")
+    private OffsetDateTime latestItemTime;
+
+    // 订单项中最高的状态
+    @Column(name = "aggregate_status", columnDefinition = "TINYINT")
+    private OrderItemStatus aggregateStatus;
+
     // JPA 需要无参构造函数
     public Order() {
     }
@@ -58,6 +78,35 @@ public class Order {
         item.setOrder(null);
     }
 
+    /**
+     * 根据当前的订单项重新计算汇总字段
+     * 任何新增订单项或修改订单项状态的写操作都必须调用
+     */
+    public void refreshSummary() {
+        BigDecimal total = BigDecimal.ZERO;
+        OffsetDateTime latest = null;
+        OrderItemStatus maxStatus = null;
+
+        for (OrderItem item : items) {
+            ProductSnapshot snapshot = item.getProduct();
+            if (snapshot == null) continue;
+
+            if (snapshot.getPrice() != null) {
+                total = total.add(snapshot.getPrice().multiply(new BigDecimal(snapshot.getCount())));
+            }
+            if (item.getCreatedTime() != null && (latest == null || item.getCreatedTime().isAfter(latest))) {
+                latest = item.getCreatedTime();
+            }
+            if (item.getItemStatus() != null && (maxStatus == null || item.getItemStatus().code() > maxStatus.code())) {
+                maxStatus = item.getItemStatus();
+            }
+        }
+
+        this.totalAmount = total;
+        this.latestItemTime = latest;
+        this.aggregateStatus = maxStatus;
+    }
+
     // --- Getters and Setters ---
     public String getOrderId() { return orderId; }
     public void setOrderId(String orderId) { this.orderId = orderId; }
@@ -73,6 +122,9 @@ public class Order {
     public void setAddress(Address address) { this.address = address; }
     public List<OrderItem> getItems() { return items; }
     public void setItems(List<OrderItem> items) { this.items = items; }
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public OffsetDateTime getLatestItemTime() { return latestItemTime; }
+    public OrderItemStatus getAggregateStatus() { return aggregateStatus; }
 
     @Override
     public String toString() {
@@ -15,8 +15,8 @@ public class OrderItem {
     @Column(name = "item_id", nullable = false, length = 255)
     private String itemId;
 
-    @Column(name = "item_status", nullable = false, length = 2, columnDefinition = "VARCHAR(2) DEFAULT '0'")
-    private String itemStatus = "0";
+    @Column(name = "item_status", nullable = false, columnDefinition = "TINYINT DEFAULT 0")
+    private OrderItemStatus itemStatus = OrderItemStatus.UNPAID;
 
     @JdbcTypeCode(SqlTypes.JSON)
     @Column(name = "product", nullable = false, columnDefinition = "json")
@@ -55,8 +55,8 @@ public class OrderItem {
     // --- Getters and Setters ---
     public String getItemId() { return itemId; }
     public void setItemId(String itemId) { this.itemId = itemId; }
-    public String getItemStatus() { return itemStatus; }
-    public void setItemStatus(String itemStatus) { this.itemStatus = itemStatus; }
+    public OrderItemStatus getItemStatus() { return itemStatus; }
+    public void setItemStatus(OrderItemStatus itemStatus) { this.itemStatus = itemStatus; }
     public ProductSnapshot getProduct() { return product; }
     public void setProduct(ProductSnapshot product) { this.product = product; }
     public boolean isRead() { return isRead; }
@@ -0,0 +1,96 @@
+package com.rabbuy.ecommerce.entity;
+
+/**
+ * 订单项状态，数据库中以 TINYINT 存储 (见 OrderItemStatusConverter)
+ * API 中仍以字符串 "0" - "10" 表示，与前端保持兼容
+ */
+public enum OrderItemStatus {
+    UNPAID(0),           // 未支付
+    PENDING_SHIPMENT(1), // 已支付，待发货
+    CANCELED(2),         // 已取消
+    PENDING_RECEIPT(3),  // 待收货
+    SHIPPED(4),          // 已发货
+    RECEIVED(5),         // 已收货 (待评价)
+    REFUNDING(6),        // 退款中
+    REFUNDED(7),         // 已退款
+    COMMENTED(8),        // 已评价 (完成)
+    PENDING_PAYMENT(9),  // 待付款
+    REFUND_REJECTED(10); // 已拒绝退款
+
+    private static final OrderItemStatus[] BY_CODE = new OrderItemStatus[11];
+
+    // 客户可执行的状态转换：CUSTOMER_TRANSITIONS[from] 的第 to 位为 1 表示允许 from -> to
+    private static final int[] CUSTOMER_TRANSITIONS = new int[11];
+
+    // 管理员可以将订单项设置为任意状态 (与原逻辑一致)
+    private static final int ADMIN_TRANSITIONS = (1 << 11) - 1;
+
+    static {
+        for (OrderItemStatus status : values()) {
+            BY_CODE[status.code] = status;
+        }
+        allowCustomer(PENDING_SHIPMENT, REFUNDING); // 待发货 -> 申请退款
+        allowCustomer(PENDING_PAYMENT, REFUNDING);  // 待付款 -> 申请退款 (原文如此)
+        allowCustomer(PENDING_RECEIPT, REFUNDING);  // 待收货 -> 申请退款
+        allowCustomer(SHIPPED, RECEIVED);           // 已发货 -> 确认收货
+        allowCustomer(SHIPPED, REFUNDING);          // 已发货 -> 申请退款
+        allowCustomer(RECEIVED, REFUNDING);         // 已收货 -> 申请退款
+    }
+
+    private final int code;
+    private final String text; // 预先生成的字符串形式，输出到 API 时不再分配
+
+    OrderItemStatus(int code) {
+        this.code = code;
+        this.text = String.valueOf(code);
+    }
+
+    private static void allowCustomer(OrderItemStatus from, OrderItemStatus to) {
+        CUSTOMER_TRANSITIONS[from.code] |= 1 << to.code;
+    }
+
+    public int code() {
+        return code;
+    }
+
+    /**
+     * API 中使用的字符串形式 ("0" - "10")
+     */
+    public String text() {
+        return text;
+    }
+
+    public boolean canCustomerChangeTo(OrderItemStatus target) {
+        return (CUSTOMER_TRANSITIONS[code] & (1 << target.code)) != 0;
+    }
+
+    public boolean canAdminChangeTo(OrderItemStatus target) {
+        return (ADMIN_TRANSITIONS & (1 << target.code)) != 0;
+    }
+
+    /**
+     * @return 对应的状态；code 无效时返回 null
+     */
+    public static OrderItemStatus fromCode(int code) {
+        return (code >= 0 && code < BY_CODE.length) ? BY_CODE[code] : null;
+    }
+
+    /**
+     * 解析 API 中的字符串状态
+     * @return 对应的状态；为 null 或无效时返回 null
+     */
+    public static OrderItemStatus fromText(String text) {
+        if (text == null || text.isEmpty() || text.length() > 2) {
+            return null;
+        }
+        int code = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return null;
+            }
+            code = code * 10 + (c - '0');
+        }
+        return fromCode(code);
+    }
+}
@@ -14,7 +14,10 @@ import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 
 @Entity
-@Table(name = "product_product")
+@Table(name = "product_product", indexes = {
+        // 管理员商品列表的游标分页 (updated_time DESC, product_id DESC)
+        @Index(name = "idx_product_admin_updated", columnList = "is_deleted, updated_time, product_id")
+})
 public class Product {
 
     @Id
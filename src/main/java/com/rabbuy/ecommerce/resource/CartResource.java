@@ -2,7 +2,9 @@ package com.rabbuy.ecommerce.resource;
 
 import com.rabbuy.ecommerce.dto.ApiResponseDto;
 import com.rabbuy.ecommerce.dto.CartItem;
+import com.rabbuy.ecommerce.dto.CartItemInputDto;
 import com.rabbuy.ecommerce.dto.CartResponseDto;
+import com.rabbuy.ecommerce.dto.CartVersionDto;
 import com.rabbuy.ecommerce.service.CartService;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -36,7 +38,7 @@ public class CartResource {
         // 从 JWT 获取用户 ID，而不是像 Django 那样从查询参数获取
         String currentUserId = securityContext.getUserPrincipal().getName();
 
-        // NotFoundException 会被 GlobalExceptionMapper 自动捕获
+        // 还没有购物车时返回空购物车
         CartResponseDto cart = cartService.getCartByUserId(currentUserId);
 
         return Response.ok(ApiResponseDto.success(cart)).build();
@@ -44,12 +46,14 @@ public class CartResource {
 
     /**
      * 保存（覆盖）当前用户的购物车
+     * 单个商品的修改请使用下面的 /items 接口，只传输变化的部分
      * @param cartItems
+     * @param version 可选，读取购物车时得到的版本号；购物车已被修改时返回 409
      * @return
      */
     @POST
     @Path("/save")
-    public Response saveCart(List<CartItem> cartItems) {
+    public Response saveCart(List<CartItem> cartItems, @QueryParam("version") Long version) {
         String currentUserId = securityContext.getUserPrincipal().getName();
 
         if (cartItems == null) {
@@ -57,9 +61,55 @@ public class CartResource {
         }
 
         // NotFoundException 会被 GlobalExceptionMapper 自动捕获
-        cartService.saveCart(currentUserId, cartItems);
+        CartVersionDto saved = cartService.saveCart(currentUserId, cartItems, version);
+
+        return Response.ok(ApiResponseDto.success(saved)).build();
+    }
+
+    /**
+     * 添加商品 (已存在时累加数量)
+     * 访问: POST /api/cart/items  {"productId": "...", "count": 1, "version": 3}
+     */
+    @POST
+    @Path("/items")
+    public Response addItem(CartItemInputDto input) {
+        String currentUserId = securityContext.getUserPrincipal().getName();
+
+        if (input == null || input.count() == null) {
+            throw new WebApplicationException("Request body must contain 'productId' and 'count'.", Response.Status.BAD_REQUEST);
+        }
+
+        CartVersionDto saved = cartService.addItem(currentUserId, input.productId(), input.count(), input.version());
+        return Response.ok(ApiResponseDto.success(saved)).build();
+    }
+
+    /**
+     * 设置商品数量 (0 表示移除)
+     * 访问: PUT /api/cart/items/{productId}  {"count": 2, "version": 3}
+     */
+    @PUT
+    @Path("/items/{productId}")
+    public Response setItemCount(@PathParam("productId") String productId, CartItemInputDto input) {
+        String currentUserId = securityContext.getUserPrincipal().getName();
+
+        if (input == null || input.count() == null) {
+            throw new WebApplicationException("Request body must contain 'count'.", Response.Status.BAD_REQUEST);
+        }
+
+        CartVersionDto saved = cartService.setItemCount(currentUserId, productId, input.count(), input.version());
+        return Response.ok(ApiResponseDto.success(saved)).build();
+    }
+
+    /**
+     * 移除商品
+     * 访问: DELETE /api/cart/items/{productId}?version=3
+     */
+    @DELETE
+    @Path("/items/{productId}")
+    public Response removeItem(@PathParam("productId") String productId, @QueryParam("version") Long version) {
+        String currentUserId = securityContext.getUserPrincipal().getName();
 
-        // 在 JAX-RS 中，我们通常返回 200 OK 或 204 No Content
-        return Response.ok(ApiResponseDto.success()).build();
+        CartVersionDto saved = cartService.removeItem(currentUserId, productId, version);
+        return Response.ok(ApiResponseDto.success(saved)).build();
     }
 }
\ No newline at end of file
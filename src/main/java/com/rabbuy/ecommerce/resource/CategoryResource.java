@@ -1,5 +1,6 @@
 package com.rabbuy.ecommerce.resource;
 
+import com.rabbuy.ecommerce.cache.ResponseCache;
 import com.rabbuy.ecommerce.dto.*;
 import com.rabbuy.ecommerce.service.SubCategoryService;
 import jakarta.annotation.security.RolesAllowed;
@@ -7,7 +8,9 @@ import com.rabbuy.ecommerce.service.CategoryService;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 
 import java.math.BigDecimal;
@@ -26,6 +29,9 @@ public class CategoryResource {
     @Inject
     private SubCategoryService subCategoryService;
 
+    @Inject
+    private ResponseCache responseCache;
+
     /**
      * 获取导航栏分类
      * 对应: path('nav/', ...)
@@ -33,22 +39,23 @@ public class CategoryResource {
      */
     @GET
     @Path("/nav")
-    public Response getNavigationCategories() {
-        List<CategoryNavDto> categories = categoryService.getNavigationCategories();
-        return Response.ok(ApiResponseDto.success(categories)).build();
+    public Response getNavigationCategories(@Context Request request) {
+        ResponseCache.CachedResponse cached = responseCache.get(ResponseCache.CATEGORY_NAV,
+                () -> categoryService.getNavigationCategories());
+        return responseCache.toResponse(request, cached);
     }
 
     @GET
     @Path("/all") // 对应 /api/category/all
-    public Response getCategoryDetails(@QueryParam("id") String id) {
+    public Response getCategoryDetails(@QueryParam("id") String id, @Context Request request) {
         if (id == null) {
             throw new WebApplicationException("Query parameter 'id' is required.", Response.Status.BAD_REQUEST);
         }
 
-        // 调用 Service 层方法
-        CategoryDetailDto detailDto = categoryService.getCategoryDetails(id);
-
-        return Response.ok(ApiResponseDto.success(detailDto)).build();
+        // 调用 Service 层方法 (随机抽取的商品在缓存有效期内保持不变)
+        ResponseCache.CachedResponse cached = responseCache.get(ResponseCache.CATEGORY_ALL + id,
+                () -> categoryService.getCategoryDetails(id));
+        return responseCache.toResponse(request, cached);
     }
 
     /**
@@ -146,14 +153,16 @@ public class CategoryResource {
             @QueryParam("pageSize") @DefaultValue("20") int pageSize,
             @QueryParam("sortField") @DefaultValue("default") String sortField,
             @QueryParam("sortMin") BigDecimal minPrice,
-            @QueryParam("sortMax") BigDecimal maxPrice) {
+            @QueryParam("sortMax") BigDecimal maxPrice,
+            @QueryParam("cursor") String cursor) {
 
         if (subCategoryId == null) {
             throw new WebApplicationException("Query parameter 'subCategoryId' is required.", Response.Status.BAD_REQUEST);
         }
 
-        PaginatedResult<SubCategoryProductDto> result = subCategoryService.getSubCategoryProducts(
-                subCategoryId, minPrice, maxPrice, sortField, page, pageSize
+        FacetedResult<SubCategoryProductDto> result = subCategoryService.getSubCategoryProducts(
+                subCategoryId, minPrice, maxPrice, sortField, page, pageSize,
+                (cursor == null || cursor.isEmpty()) ? null : cursor
         );
         return Response.ok(ApiResponseDto.success(result)).build();
     }
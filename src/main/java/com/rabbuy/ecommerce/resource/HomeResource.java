@@ -2,10 +2,8 @@ package com.rabbuy.ecommerce.resource;
 
 import com.rabbuy.ecommerce.dto.ApiResponseDto;
 import com.rabbuy.ecommerce.dto.HomeMessageCountDto;
-import com.rabbuy.ecommerce.dto.HomeProductResponseDto;
-import com.rabbuy.ecommerce.dto.ProductListDto;
+import com.rabbuy.ecommerce.service.HomeFeedService;
 import com.rabbuy.ecommerce.service.OrderService;
-import com.rabbuy.ecommerce.service.ProductService;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.Consumes;
@@ -16,10 +14,6 @@ import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.SecurityContext;
 import jakarta.ws.rs.core.Context;
-import com.rabbuy.ecommerce.dto.RecommendCategoryResponseDto;
-
-import java.util.List;
-
 
 @Path("/home") // 对应 /api/home
 @ApplicationScoped
@@ -28,7 +22,7 @@ import java.util.List;
 public class HomeResource {
 
     @Inject
-    private ProductService productService;
+    private HomeFeedService homeFeedService;
 
     @Inject
     private OrderService orderService;
@@ -43,9 +37,8 @@ public class HomeResource {
     @GET
     @Path("/new")
     public Response getNewProducts() {
-        // Django view hardcodes limit to 4
-        List<ProductListDto> products = productService.getLatestProducts(4);
-        return Response.ok(ApiResponseDto.success(products)).build();
+        // Django view hardcodes limit to 4 (预生成的响应体)
+        return Response.ok(homeFeedService.getNewProductsJson()).build();
     }
 
     /**
@@ -55,9 +48,8 @@ public class HomeResource {
     @GET
     @Path("/hot")
     public Response getHotProducts() {
-        // Django view hardcodes limit to 4
-        List<ProductListDto> products = productService.getHotProducts(4);
-        return Response.ok(ApiResponseDto.success(products)).build();
+        // Django view hardcodes limit to 4 (预生成的响应体)
+        return Response.ok(homeFeedService.getHotProductsJson()).build();
     }
 
     /**
@@ -67,8 +59,8 @@ public class HomeResource {
     @GET
     @Path("/products")
     public Response getHomeProducts() {
-        List<HomeProductResponseDto> products = productService.getHomeProducts();
-        return Response.ok(ApiResponseDto.success(products)).build();
+        // 预生成的多个随机版本之一
+        return Response.ok(homeFeedService.getHomeProductsJson()).build();
     }
 
     /**
@@ -78,8 +70,8 @@ public class HomeResource {
     @GET
     @Path("/recommend")
     public Response getRecommendCategories() {
-        List<RecommendCategoryResponseDto> data = productService.getRecommendCategories();
-        return Response.ok(ApiResponseDto.success(data)).build();
+        // 预生成的多个随机版本之一
+        return Response.ok(homeFeedService.getRecommendCategoriesJson()).build();
     }
 
     /**
@@ -13,6 +13,7 @@ import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.ForbiddenException;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Path("/order")
@@ -99,7 +100,7 @@ public class OrderResource {
         OrderItem updatedItem = orderService.updateCustomerItemStatus(updateDto);
         // 返回更新后的 DTO（或仅返回状态）
         // 为了与 Django 视图的响应保持一致，我们构造一个简单的 DTO
-        var responseDto = new OrderItemStatusUpdateDto(updatedItem.getItemId(), null, updatedItem.getItemStatus());
+        var responseDto = new OrderItemStatusUpdateDto(updatedItem.getItemId(), null, updatedItem.getItemStatus().text());
         return Response.ok(ApiResponseDto.success(responseDto)).build();
     }
 
@@ -212,4 +213,25 @@ public class OrderResource {
         // 返回 {"code": 1}
         return Response.ok(ApiResponseDto.success()).build();
     }
-}
\ No newline at end of file
+
+    /**
+     * 管理员：批量更新订单项状态（例如：整批发货、批量退款）
+     * @param updateDtos
+     * @return 每个订单项的处理结果
+     */
+    @PUT
+    @Path("/admin/item/batch-update")
+    public Response updateAdminItemStatuses(List<AdminOrderItemStatusUpdateDto> updateDtos) {
+        if (!securityContext.isUserInRole("admin")) {
+            throw new ForbiddenException("Administrator access required.");
+        }
+
+        if (updateDtos == null || updateDtos.isEmpty()) {
+            throw new WebApplicationException("Request body must be a non-empty list of {'itemId', 'status'}.", Response.Status.BAD_REQUEST);
+        }
+
+        AdminOrderItemBatchResultDto result = orderService.updateAdminItemStatuses(updateDtos);
+        // 返回 {"code": 1, "data": {"succeeded": ..., "failed": ..., "results": [...]}}
+        return Response.ok(ApiResponseDto.success(result)).build();
+    }
+}
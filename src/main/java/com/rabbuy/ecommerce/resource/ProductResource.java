@@ -1,11 +1,13 @@
 package com.rabbuy.ecommerce.resource;
 
+import com.rabbuy.ecommerce.cache.ResponseCache;
 import com.rabbuy.ecommerce.dto.*;
 import com.rabbuy.ecommerce.service.ProductService;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.SecurityContext;
 import jakarta.ws.rs.core.Context;
@@ -25,6 +27,9 @@ public class ProductResource {
     @Inject
     private ProductService productService;
 
+    @Inject
+    private ResponseCache responseCache;
+
     @Context
     private SecurityContext securityContext;
 
@@ -35,10 +40,11 @@ public class ProductResource {
      */
     @GET
     @Path("/detail/{id}")
-    public Response getProductDetail(@PathParam("id") String productId) {
-        // NotFoundException 会被 GlobalExceptionMapper 自动捕获
-        ProductDetailDto productDetail = productService.getProductDetails(productId);
-        return Response.ok(ApiResponseDto.success(productDetail)).build();
+    public Response getProductDetail(@PathParam("id") String productId, @Context Request request) {
+        // NotFoundException 会被 GlobalExceptionMapper 自动捕获 (不会进入缓存)
+        ResponseCache.CachedResponse cached = responseCache.get(ResponseCache.PRODUCT_DETAIL + productId,
+                () -> productService.getProductDetails(productId));
+        return responseCache.toResponse(request, cached);
     }
 
     /**
@@ -73,14 +79,17 @@ public class ProductResource {
             @QueryParam("pageSize") @DefaultValue("10") int pageSize,
             @QueryParam("sortField") @DefaultValue("default") String sortField,
             @QueryParam("sortMin") BigDecimal minPrice,
-            @QueryParam("sortMax") BigDecimal maxPrice) {
+            @QueryParam("sortMax") BigDecimal maxPrice,
+            @QueryParam("cursor") String cursor) {
 
-        // 将所有查询参数封装到 DTO 中
+        // 将所有查询参数封装到 DTO 中 (cursor 为上一页返回的 nextCursor，传入时忽略 page)
         ProductSearchCriteria criteria = new ProductSearchCriteria(
-                keyword, categoryId, minPrice, maxPrice, sortField, page, pageSize
+                keyword, categoryId, null, minPrice, maxPrice, sortField, page, pageSize,
+                (cursor == null || cursor.isEmpty()) ? null : cursor
         );
 
-        PaginatedResult<ProductListDto> results = productService.searchProducts(criteria);
+        // 在分页字段之外附带 facets (分类 / 价格区间 / 评分分面)
+        FacetedResult<ProductListDto> results = productService.searchProducts(criteria);
         return Response.ok(ApiResponseDto.success(results)).build();
     }
 
@@ -132,12 +141,26 @@ public class ProductResource {
     public Response getAdminProductList(
             @QueryParam("q") @DefaultValue("") String query,
             @QueryParam("page") @DefaultValue("1") int page,
-            @QueryParam("pageSize") @DefaultValue("10") int pageSize) {
+            @QueryParam("pageSize") @DefaultValue("10") int pageSize,
+            @QueryParam("cursor") String cursor,
+            @QueryParam("withTotal") @DefaultValue("true") boolean withTotal) {
 
         if (!securityContext.isUserInRole("admin")) {
             throw new ForbiddenException("Administrator access required.");
         }
 
+        if (cursor != null) {
+            // 游标模式：cursor 为空串表示第一页，之后传入上一页返回的 nextCursor
+            CursorResult<ProductAdminListDto> cursorResult = productService.getAdminProductListByCursor(
+                    query, cursor.isEmpty() ? null : cursor, pageSize, withTotal);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("products", cursorResult.data());
+            response.put("total", cursorResult.totalItems());
+            response.put("nextCursor", cursorResult.nextCursor());
+            return Response.ok(ApiResponseDto.success(response)).build();
+        }
+
         PaginatedResult<ProductAdminListDto> result = productService.getAdminProductList(query, page, pageSize);
 
         // 匹配 Django 的 'get_product_view' 响应格式
@@ -0,0 +1,324 @@
+package com.rabbuy.ecommerce.search;
+
+import com.rabbuy.ecommerce.dto.ProductIndexRow;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 倒排索引的数据部分 (非线程安全，由 ProductSearchIndex 加锁访问)
+ * 文档号只增不减：更新 = 删除旧文档 + 追加新文档，重建时整体替换
+ * 过滤和分面用到的字段另外按列存放在以文档号为下标的基本类型数组中，一次顺序扫描即可完成统计
+ */
+final class IndexState {
+
+    // BM25 参数
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // 商品名中的词项按该倍数计入词频 (名称比描述更重要)
+    private static final int NAME_WEIGHT = 3;
+
+    // 价格分面的区间边界 (分)：[0,50) [50,100) [100,200) ... [5000,+∞)
+    static final long[] PRICE_EDGES_CENTS = {5_000, 10_000, 20_000, 50_000, 100_000, 200_000, 500_000};
+
+    // 评分分面：评分 >= 阈值
+    static final double[] RATING_THRESHOLDS = {4, 3, 2, 1};
+
+    private static final long NO_PRICE = -1;
+    private static final int NO_ORDINAL = -1;
+
+    record Doc(ProductIndexRow row, Map<String, Integer> termFreqs, int length) {
+    }
+
+    record Match(ProductIndexRow row, double score) {
+    }
+
+    /**
+     * 过滤条件 (价格已换算为分，null 表示不限)
+     */
+    record Filter(String categoryId, String subCategoryId, Long minPriceCents, Long maxPriceCents) {
+    }
+
+    /**
+     * 一次扫描的结果：命中的文档及各维度计数 (分类计数按序号下标，由调用方映射回 ID)
+     */
+    record Result(List<Match> matches, int[] categoryCounts, int[] subCategoryCounts,
+                  int[] priceCounts, int[] ratingCounts) {
+    }
+
+    private final long builtAt;
+    private final Map<String, Integer> docByProductId = new HashMap<>();
+    private final List<Doc> docs = new ArrayList<>(); // 已删除的位置为 null
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private int liveDocs;
+    private long totalLength;
+
+    // --- 列存字段 (下标为文档号) ---
+    private long[] priceCents = new long[16];
+    private float[] ratings = new float[16];
+    private int[] categoryOrdinals = new int[16];
+    private int[] subCategoryOrdinals = new int[16];
+
+    // 分类 ID <-> 序号 (只增不减，重建时清理)
+    private final Ordinals categories = new Ordinals();
+    private final Ordinals subCategories = new Ordinals();
+
+    IndexState(long builtAt) {
+        this.builtAt = builtAt;
+    }
+
+    long builtAt() {
+        return builtAt;
+    }
+
+    int liveDocs() {
+        return liveDocs;
+    }
+
+    int deadDocs() {
+        return docs.size() - liveDocs;
+    }
+
+    Ordinals categories() {
+        return categories;
+    }
+
+    Ordinals subCategories() {
+        return subCategories;
+    }
+
+    ProductIndexRow row(String productId) {
+        Integer doc = docByProductId.get(productId);
+        return doc != null ? docs.get(doc).row() : null;
+    }
+
+    void put(ProductIndexRow row) {
+        remove(row.productId());
+
+        Map<String, Integer> termFreqs = new HashMap<>();
+        int length = 0;
+        for (String term : SearchTokenizer.tokenizeDocument(row.productName())) {
+            termFreqs.merge(term, NAME_WEIGHT, Integer::sum);
+            length += NAME_WEIGHT;
+        }
+        for (String term : SearchTokenizer.tokenizeDocument(row.productDesc())) {
+            termFreqs.merge(term, 1, Integer::sum);
+            length++;
+        }
+
+        int doc = docs.size();
+        docs.add(new Doc(row, termFreqs, length));
+        docByProductId.put(row.productId(), doc);
+        for (Map.Entry<String, Integer> entry : termFreqs.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), k -> new PostingList()).add(doc, entry.getValue());
+        }
+        liveDocs++;
+        totalLength += length;
+
+        ensureColumnCapacity(doc + 1);
+        priceCents[doc] = row.price() != null ? toCents(row.price(), RoundingMode.HALF_UP) : NO_PRICE;
+        ratings[doc] = row.productRating() != null ? row.productRating().floatValue() : 0f;
+        categoryOrdinals[doc] = categories.ordinalOf(row.categoryId(), row.categoryName());
+        subCategoryOrdinals[doc] = subCategories.ordinalOf(row.subCategoryId(), row.subCategoryName());
+    }
+
+    void remove(String productId) {
+        Integer doc = docByProductId.remove(productId);
+        if (doc == null) {
+            return;
+        }
+        Doc removed = docs.set(doc, null);
+        for (String term : removed.termFreqs().keySet()) {
+            postings.get(term).markRemoved();
+        }
+        liveDocs--;
+        totalLength -= removed.length();
+    }
+
+    /**
+     * 查找包含全部词项 (词项为空时为所有文档) 且满足过滤条件的文档，同时统计分面
+     * 每个分面维度忽略自身的过滤条件，因此不同维度使用不同的过滤组合
+     */
+    Result search(List<String> terms, Filter filter) {
+        int wantCategory = filter.categoryId() != null ? categories.find(filter.categoryId()) : NO_ORDINAL;
+        int wantSubCategory = filter.subCategoryId() != null ? subCategories.find(filter.subCategoryId()) : NO_ORDINAL;
+        boolean unknownCategory = filter.categoryId() != null && wantCategory == NO_ORDINAL;
+        boolean unknownSubCategory = filter.subCategoryId() != null && wantSubCategory == NO_ORDINAL;
+        long minCents = filter.minPriceCents() != null ? filter.minPriceCents() : Long.MIN_VALUE;
+        long maxCents = filter.maxPriceCents() != null ? filter.maxPriceCents() : Long.MAX_VALUE;
+        boolean priceFiltered = filter.minPriceCents() != null || filter.maxPriceCents() != null;
+
+        List<Match> matches = new ArrayList<>();
+        int[] categoryCounts = new int[categories.size()];
+        int[] subCategoryCounts = new int[subCategories.size()];
+        int[] priceCounts = new int[PRICE_EDGES_CENTS.length + 1];
+        int[] ratingCounts = new int[RATING_THRESHOLDS.length];
+
+        forEachCandidate(terms, (doc, score) -> {
+            int category = categoryOrdinals[doc];
+            int subCategory = subCategoryOrdinals[doc];
+            long price = priceCents[doc];
+
+            boolean categoryOk = !unknownCategory && (wantCategory == NO_ORDINAL || category == wantCategory);
+            boolean subCategoryOk = !unknownSubCategory && (wantSubCategory == NO_ORDINAL || subCategory == wantSubCategory);
+            boolean priceOk = !priceFiltered || (price != NO_PRICE && price >= minCents && price <= maxCents);
+
+            if (priceOk && category != NO_ORDINAL) {
+                categoryCounts[category]++;
+            }
+            if (priceOk && categoryOk && subCategory != NO_ORDINAL) {
+                subCategoryCounts[subCategory]++;
+            }
+            if (categoryOk && subCategoryOk && price != NO_PRICE) {
+                priceCounts[priceBucket(price)]++;
+            }
+            if (categoryOk && subCategoryOk && priceOk) {
+                float rating = ratings[doc];
+                for (int r = 0; r < RATING_THRESHOLDS.length; r++) {
+                    if (rating >= RATING_THRESHOLDS[r]) ratingCounts[r]++;
+                }
+                matches.add(new Match(docs.get(doc).row(), score));
+            }
+        });
+
+        return new Result(matches, categoryCounts, subCategoryCounts, priceCounts, ratingCounts);
+    }
+
+    @FunctionalInterface
+    private interface DocVisitor {
+        void visit(int doc, double score);
+    }
+
+    /**
+     * 遍历候选文档：词项为空时为所有有效文档 (得分 0)，否则为包含全部词项的文档 (BM25 得分)
+     */
+    private void forEachCandidate(List<String> terms, DocVisitor visitor) {
+        if (terms.isEmpty()) {
+            for (int doc = 0; doc < docs.size(); doc++) {
+                if (docs.get(doc) != null) {
+                    visitor.visit(doc, 0);
+                }
+            }
+            return;
+        }
+
+        // 1. 取出所有词项的倒排列表，任一词项不存在则无结果
+        List<PostingList> lists = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            PostingList list = postings.get(term);
+            if (list == null || list.liveCount() == 0) {
+                return;
+            }
+            lists.add(list);
+        }
+        // 从最短的列表开始求交集
+        lists.sort(Comparator.comparingInt(PostingList::size));
+
+        double[] idf = new double[lists.size()];
+        for (int t = 0; t < lists.size(); t++) {
+            int df = lists.get(t).liveCount();
+            idf[t] = Math.log(1 + (liveDocs - df + 0.5) / (df + 0.5));
+        }
+        double avgLength = liveDocs > 0 ? (double) totalLength / liveDocs : 1;
+
+        // 2. 以最短列表驱动，其余列表用二分前进
+        int[] cursors = new int[lists.size()];
+        PostingList lead = lists.get(0);
+        outer:
+        for (int i = 0; i < lead.size(); i++) {
+            int docId = lead.doc(i);
+            Doc doc = docs.get(docId);
+            if (doc == null) {
+                continue;
+            }
+            double norm = K1 * (1 - B + B * doc.length() / avgLength);
+            double score = idf[0] * bm25(lead.freq(i), norm);
+
+            for (int t = 1; t < lists.size(); t++) {
+                PostingList list = lists.get(t);
+                cursors[t] = list.advance(cursors[t], docId);
+                if (cursors[t] == list.size()) {
+                    break outer; // 该列表已经没有更大的文档号
+                }
+                if (list.doc(cursors[t]) != docId) {
+                    continue outer;
+                }
+                score += idf[t] * bm25(list.freq(cursors[t]), norm);
+            }
+            visitor.visit(docId, score);
+        }
+    }
+
+    private static double bm25(int tf, double norm) {
+        return tf * (K1 + 1) / (tf + norm);
+    }
+
+    static long toCents(BigDecimal price, RoundingMode roundingMode) {
+        return price.movePointRight(2).setScale(0, roundingMode).longValue();
+    }
+
+    private static int priceBucket(long cents) {
+        int index = Arrays.binarySearch(PRICE_EDGES_CENTS, cents);
+        return index >= 0 ? index + 1 : -index - 1; // 边界值归入右侧区间
+    }
+
+    private void ensureColumnCapacity(int capacity) {
+        if (capacity <= priceCents.length) {
+            return;
+        }
+        int newLength = Math.max(capacity, priceCents.length * 2);
+        priceCents = Arrays.copyOf(priceCents, newLength);
+        ratings = Arrays.copyOf(ratings, newLength);
+        categoryOrdinals = Arrays.copyOf(categoryOrdinals, newLength);
+        subCategoryOrdinals = Arrays.copyOf(subCategoryOrdinals, newLength);
+    }
+
+    /**
+     * 字符串 ID 到连续序号的字典，分面计数用序号作数组下标
+     */
+    static final class Ordinals {
+        private final Map<String, Integer> byId = new HashMap<>();
+        private final List<String> ids = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+
+        int ordinalOf(String id, String name) {
+            if (id == null) {
+                return NO_ORDINAL;
+            }
+            Integer ordinal = byId.get(id);
+            if (ordinal == null) {
+                ordinal = ids.size();
+                byId.put(id, ordinal);
+                ids.add(id);
+                names.add(name);
+            } else if (name != null) {
+                names.set(ordinal, name); // 名称可能被修改
+            }
+            return ordinal;
+        }
+
+        int find(String id) {
+            Integer ordinal = byId.get(id);
+            return ordinal != null ? ordinal : NO_ORDINAL;
+        }
+
+        int size() {
+            return ids.size();
+        }
+
+        String id(int ordinal) {
+            return ids.get(ordinal);
+        }
+
+        String name(int ordinal) {
+            return names.get(ordinal);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.rabbuy.ecommerce.search;
+
+import java.util.Arrays;
+
+/**
+ * 一个词项的倒排列表：文档号按插入顺序 (即升序) 排列，词频与文档号一一对应
+ * 被删除的文档不会从数组中移除，由 IndexState 在读取时跳过，重建索引时清理
+ */
+final class PostingList {
+
+    private int[] docs = new int[4];
+    private int[] freqs = new int[4];
+    private int size;
+
+    // 仍然有效的文档数 (BM25 的 df)
+    private int liveCount;
+
+    void add(int doc, int freq) {
+        if (size == docs.length) {
+            docs = Arrays.copyOf(docs, size * 2);
+            freqs = Arrays.copyOf(freqs, size * 2);
+        }
+        docs[size] = doc;
+        freqs[size] = freq;
+        size++;
+        liveCount++;
+    }
+
+    void markRemoved() {
+        liveCount--;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int liveCount() {
+        return liveCount;
+    }
+
+    int doc(int index) {
+        return docs[index];
+    }
+
+    int freq(int index) {
+        return freqs[index];
+    }
+
+    /**
+     * 从 from 开始查找第一个 >= target 的位置 (二分)，不存在时返回 size
+     */
+    int advance(int from, int target) {
+        int lo = from, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (docs[mid] < target) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,188 @@
+package com.rabbuy.ecommerce.search;
+
+import com.rabbuy.ecommerce.cache.TransactionCallbacks;
+import com.rabbuy.ecommerce.dao.OrderItemDao;
+import com.rabbuy.ecommerce.dao.ProductDao;
+import com.rabbuy.ecommerce.dto.ProductIndexRow;
+import com.rabbuy.ecommerce.entity.OrderItemStatus;
+import com.rabbuy.ecommerce.entity.Product;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.OffsetDateTime;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 商品详情页 "相似商品" 的预计算结果：每个在售商品对应一个按相似度排序的商品 ID 数组
+ * - 由 RecommendationRefreshTimer 在定时器线程上从数据库全量构建 (在售商品 + 最近一段时间的订单)，之后按重建间隔全量重建
+ * - 重建失败时保留旧结果，稍后重试；第一次构建完成前没有推荐结果
+ * - 商品的新增 / 修改 / 删除在事务提交后增量更新该商品自己的结果；它出现在其他商品结果中的位置等到下次重建
+ * 查询只是一次 Map 读取，调用方按 ID 加载商品
+ */
+@ApplicationScoped
+public class ProductRecommendationIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductRecommendationIndex.class);
+
+    private static final String[] NONE = new String[0];
+
+    // 未支付、已取消、已退款的订单项不算作购买
+    private static final Set<OrderItemStatus> EXCLUDED_STATUSES = EnumSet.of(
+            OrderItemStatus.UNPAID, OrderItemStatus.PENDING_PAYMENT, OrderItemStatus.CANCELED, OrderItemStatus.REFUNDED);
+
+    // 商品过多的订单 (例如批量采购) 对相似度没有参考价值
+    private static final int MAX_BASKET_SIZE = 50;
+
+    // 重建失败后的重试间隔
+    private static final long RETRY_DELAY_MILLIS = 5 * 60_000L;
+
+    @Inject
+    private TransactionCallbacks transactionCallbacks;
+
+    @Inject
+    private ProductDao productDao;
+
+    @Inject
+    private OrderItemDao orderItemDao;
+
+    @Inject
+    @ConfigProperty(name = "recommend.index.rebuild-interval-minutes", defaultValue = "360")
+    private long rebuildIntervalMinutes;
+
+    @Inject
+    @ConfigProperty(name = "recommend.co-purchase-days", defaultValue = "180")
+    private long coPurchaseDays;
+
+    @Inject
+    @ConfigProperty(name = "recommend.top-k", defaultValue = "12")
+    private int topK;
+
+    private final Object lock = new Object();
+
+    private RecommendationModel model; // 由 lock 保护
+    private volatile Map<String, String[]> similar; // 读操作不加锁
+    private long nextBuildAt; // 只由定时器线程访问
+
+    // 重建期间发生的增量修改 (null 值表示删除)，重建完成后重放到新结果上；由 lock 保护
+    private Map<String, ProductIndexRow> pendingDuringRebuild;
+
+    /**
+     * 与指定商品最相似的商品 ID (按相似度降序，最多 recommend.top-k 个)；没有结果或尚未构建时返回空数组
+     */
+    public String[] similarTo(String productId) {
+        Map<String, String[]> current = similar;
+        String[] ids = current != null ? current.get(productId) : null;
+        return ids != null ? ids : NONE;
+    }
+
+    /**
+     * 商品新增或修改后调用；不在售 (下架或已删除) 的商品会被移除
+     * 在当前事务提交后才更新 (回滚时不变)；商品行在调用时读取，提交后不再访问实体的关联
+     */
+    public void upsertAfterCommit(Product product) {
+        String productId = product.getProductId();
+        ProductIndexRow row = "1".equals(product.getStatus()) && !product.isDeleted()
+                ? ProductIndexRow.fromEntity(product) : null;
+        transactionCallbacks.afterCommit(() -> apply(productId, row));
+    }
+
+    /**
+     * 商品删除后调用；同样在当前事务提交后才移除
+     */
+    public void removeAfterCommit(String productId) {
+        transactionCallbacks.afterCommit(() -> apply(productId, null));
+    }
+
+    private void apply(String productId, ProductIndexRow row) {
+        synchronized (lock) {
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.put(productId, row);
+            }
+            if (model != null) {
+                applyTo(model, similar, productId, row);
+            }
+        }
+    }
+
+    private void applyTo(RecommendationModel target, Map<String, String[]> results, String productId, ProductIndexRow row) {
+        if (row != null) {
+            target.put(row);
+            results.put(productId, target.topK(productId, topK));
+        } else {
+            target.remove(productId);
+            results.remove(productId);
+        }
+    }
+
+    // --- 构建与重建 ---
+
+    /**
+     * 由 RecommendationRefreshTimer 定期调用：还没有结果或已到重建时间时全量重建
+     */
+    public void refreshIfDue() {
+        long now = System.currentTimeMillis();
+        if (similar != null && now < nextBuildAt) {
+            return;
+        }
+        try {
+            rebuild();
+            nextBuildAt = now + rebuildIntervalMinutes * 60_000L;
+        } catch (RuntimeException e) {
+            // 继续使用旧结果 (没有时推荐为空)，稍后重试
+            logger.error("Failed to rebuild product recommendations, retrying in {} s: {}",
+                    RETRY_DELAY_MILLIS / 1000, e.getMessage(), e);
+            nextBuildAt = now + RETRY_DELAY_MILLIS;
+        }
+    }
+
+    private void rebuild() {
+        synchronized (lock) {
+            pendingDuringRebuild = new LinkedHashMap<>();
+        }
+
+        RecommendationModel fresh = null;
+        Map<String, String[]> freshResults = null;
+        try {
+            // 1. 在售商品
+            RecommendationModel building = new RecommendationModel();
+            for (ProductIndexRow row : productDao.findAllActiveIndexRows()) {
+                building.put(row);
+            }
+
+            // 2. 最近的订单逐个读取，一起购买的商品直接累加到模型中 (不保留订单明细)
+            OffsetDateTime since = OffsetDateTime.now().minusDays(coPurchaseDays);
+            orderItemDao.forEachOrderBasket(since, EXCLUDED_STATUSES, basket -> {
+                if (basket.size() <= MAX_BASKET_SIZE) {
+                    building.addBasket(basket);
+                }
+            });
+
+            // 3. 为每个商品计算前 k 个相似商品
+            Map<String, String[]> results = new ConcurrentHashMap<>();
+            for (String productId : building.productIds()) {
+                results.put(productId, building.topK(productId, topK));
+            }
+            fresh = building; // 加载失败时保留旧结果
+            freshResults = results;
+        } finally {
+            synchronized (lock) {
+                if (fresh != null) {
+                    // 重放构建期间的增量修改，避免被旧的数据库快照覆盖
+                    for (Map.Entry<String, ProductIndexRow> entry : pendingDuringRebuild.entrySet()) {
+                        applyTo(fresh, freshResults, entry.getKey(), entry.getValue());
+                    }
+                    model = fresh;
+                    similar = freshResults;
+                }
+                pendingDuringRebuild = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.rabbuy.ecommerce.search;
+
+import com.rabbuy.ecommerce.dto.ProductFacetsDto;
+import com.rabbuy.ecommerce.dto.ProductIndexRow;
+
+import java.util.List;
+
+/**
+ * 搜索索引返回的一页结果：商品 ID 及索引中保存的字段，列表字段由调用方按 ID 从数据库加载
+ * @param productIds 当前页的商品 ID (已排序)
+ * @param rows 当前页商品在索引中的数据 (与 productIds 顺序一致，包含描述，调用方无需再从数据库读取)
+ * @param totalItems 满足条件的商品总数
+ * @param facets 同一次扫描得到的分面统计
+ * @param nextCursor 下一页的续页令牌；没有更多结果时为 null
+ */
+public record ProductSearchHits(
+        List<String> productIds,
+        List<ProductIndexRow> rows,
+        long totalItems,
+        ProductFacetsDto facets,
+        String nextCursor
+) {
+}
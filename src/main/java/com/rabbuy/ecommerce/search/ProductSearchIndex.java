@@ -0,0 +1,358 @@
+package com.rabbuy.ecommerce.search;
+
+import com.rabbuy.ecommerce.cache.TransactionCallbacks;
+import com.rabbuy.ecommerce.dao.ProductDao;
+import com.rabbuy.ecommerce.dto.PageCursor;
+import com.rabbuy.ecommerce.dto.ProductFacetsDto;
+import com.rabbuy.ecommerce.dto.ProductIndexRow;
+import com.rabbuy.ecommerce.dto.ProductSearchCriteria;
+import com.rabbuy.ecommerce.entity.Product;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 在售商品的内存倒排索引 (替代 LIKE '%keyword%' 全表扫描)，同时提供分类 / 价格 / 评分分面
+ * - 第一次搜索时从数据库全量构建，之后由商品的新增 / 修改 / 删除在事务提交后增量维护
+ * - 超过重建间隔或已删除文档过多时由 SearchIndexRefreshTimer 在定时器线程上全量重建，兜底其他途径 (例如其他实例) 的修改
+ * 索引只返回商品 ID，调用方按 ID 从数据库加载当前页
+ */
+@ApplicationScoped
+public class ProductSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    @Inject
+    private TransactionCallbacks transactionCallbacks;
+
+    @Inject
+    private ProductDao productDao;
+
+    @Inject
+    @ConfigProperty(name = "search.index.rebuild-interval-minutes", defaultValue = "30")
+    private long rebuildIntervalMinutes;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private IndexState state; // 由 lock 保护
+
+    // 重建期间发生的增量修改 (null 值表示删除)，重建完成后重放到新索引上
+    private Map<String, ProductIndexRow> pendingDuringRebuild;
+
+    /**
+     * 按关键词、分类、价格过滤并排序，返回当前页的商品 ID 以及分面统计
+     */
+    public ProductSearchHits search(ProductSearchCriteria criteria) {
+        ensureFresh();
+
+        List<String> terms = SearchTokenizer.tokenizeQuery(criteria.keyword());
+        if (criteria.keyword() != null && !criteria.keyword().trim().isEmpty() && terms.isEmpty()) {
+            // 关键词只包含标点等分隔符
+            return new ProductSearchHits(new ArrayList<>(), new ArrayList<>(), 0, new ProductFacetsDto(List.of(), List.of(), List.of(), List.of()), null);
+        }
+
+        IndexState.Filter filter = new IndexState.Filter(
+                criteria.categoryId(),
+                criteria.subCategoryId(),
+                criteria.minPrice() != null ? IndexState.toCents(criteria.minPrice(), RoundingMode.CEILING) : null,
+                criteria.maxPrice() != null ? IndexState.toCents(criteria.maxPrice(), RoundingMode.FLOOR) : null
+        );
+
+        IndexState.Result result;
+        ProductFacetsDto facets;
+        lock.readLock().lock();
+        try {
+            result = state.search(terms, filter);
+            facets = toFacets(result, state); // 分类字典同样由锁保护
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // 游标模式跳过游标之前的结果；页码模式跳过前面的页。只对需要的前 k 条做堆选择，不对全部结果排序
+        Comparator<IndexState.Match> comparator = buildComparator(criteria.sortField());
+        IndexState.Match after = criteria.cursor() != null ? decodeCursor(criteria.cursor(), criteria.sortField()) : null;
+        int offset = after != null ? 0 : Math.max(0, (criteria.page() - 1) * criteria.pageSize());
+        List<IndexState.Match> top = selectTop(result.matches(), comparator, after, offset + criteria.pageSize() + 1);
+
+        int to = Math.min(top.size(), offset + criteria.pageSize());
+        List<String> pageIds = new ArrayList<>(Math.max(0, to - offset));
+        List<ProductIndexRow> pageRows = new ArrayList<>(Math.max(0, to - offset));
+        for (int i = offset; i < to; i++) {
+            pageIds.add(top.get(i).row().productId());
+            pageRows.add(top.get(i).row());
+        }
+        // 多取的一条用于判断是否还有下一页
+        String nextCursor = (top.size() > to && to > offset) ? encodeCursor(top.get(to - 1), criteria.sortField()) : null;
+        return new ProductSearchHits(pageIds, pageRows, result.matches().size(), facets, nextCursor);
+    }
+
+    /**
+     * 按 ID 读取索引中保存的商品字段 (不在索引中的商品不出现在结果中)
+     */
+    public Map<String, ProductIndexRow> findRows(Collection<String> productIds) {
+        ensureFresh();
+        Map<String, ProductIndexRow> rows = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (String productId : productIds) {
+                ProductIndexRow row = state.row(productId);
+                if (row != null) rows.put(productId, row);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return rows;
+    }
+
+    /**
+     * 商品新增或修改后调用；不在售 (下架或已删除) 的商品会从索引中移除
+     * 索引在当前事务提交后才更新 (回滚时不变)；索引行在调用时读取，提交后不再访问实体的关联
+     */
+    public void upsertAfterCommit(Product product) {
+        String productId = product.getProductId();
+        ProductIndexRow row = "1".equals(product.getStatus()) && !product.isDeleted()
+                ? ProductIndexRow.fromEntity(product) : null;
+        transactionCallbacks.afterCommit(() -> apply(productId, row));
+    }
+
+    /**
+     * 商品删除后调用；同样在当前事务提交后才从索引中移除
+     */
+    public void removeAfterCommit(String productId) {
+        transactionCallbacks.afterCommit(() -> apply(productId, null));
+    }
+
+    private void apply(String productId, ProductIndexRow row) {
+        lock.writeLock().lock();
+        try {
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.put(productId, row);
+            }
+            if (state != null) {
+                if (row != null) state.put(row);
+                else state.remove(productId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // --- 构建与重建 ---
+
+    /**
+     * 由 SearchIndexRefreshTimer 定期调用：超过重建间隔或已删除文档过多时全量重建
+     * 尚未构建时不处理 (第一次构建由搜索请求触发)；重建失败时继续使用旧索引，下一次触发时重试
+     */
+    public void refreshIfDue() {
+        IndexState current;
+        lock.readLock().lock();
+        try {
+            current = state;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (current == null) {
+            return;
+        }
+
+        boolean expired = System.currentTimeMillis() - current.builtAt() > rebuildIntervalMinutes * 60_000L;
+        boolean fragmented = current.deadDocs() > Math.max(1_000, current.liveDocs());
+        if (!expired && !fragmented) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            logger.error("Failed to rebuild product search index, keeping the old one: {}", e.getMessage(), e);
+        }
+    }
+
+    private void ensureFresh() {
+        lock.readLock().lock();
+        try {
+            if (state != null) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // 第一次构建：所有请求等待同一次构建完成
+        synchronized (this) {
+            lock.readLock().lock();
+            try {
+                if (state != null) {
+                    return;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild = new LinkedHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        IndexState fresh = null;
+        try {
+            IndexState building = new IndexState(System.currentTimeMillis());
+            for (ProductIndexRow row : productDao.findAllActiveIndexRows()) {
+                building.put(row);
+            }
+            fresh = building; // 加载失败时保留旧索引
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (fresh != null) {
+                    // 重放构建期间的增量修改，避免被旧的数据库快照覆盖
+                    for (Map.Entry<String, ProductIndexRow> entry : pendingDuringRebuild.entrySet()) {
+                        if (entry.getValue() != null) fresh.put(entry.getValue());
+                        else fresh.remove(entry.getKey());
+                    }
+                    state = fresh;
+                }
+                pendingDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // --- 分页 ---
+
+    /**
+     * 取排序后位于 after 之后的前 limit 条 (有序)；堆大小为 limit，与翻到第几页 / 游标位置无关
+     */
+    static List<IndexState.Match> selectTop(List<IndexState.Match> matches, Comparator<IndexState.Match> comparator,
+                                            IndexState.Match after, int limit) {
+        PriorityQueue<IndexState.Match> heap = new PriorityQueue<>(limit + 1, comparator.reversed());
+        for (IndexState.Match match : matches) {
+            if (after != null && comparator.compare(match, after) <= 0) {
+                continue;
+            }
+            if (heap.size() < limit) {
+                heap.add(match);
+            } else if (comparator.compare(match, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(match);
+            }
+        }
+        List<IndexState.Match> top = new ArrayList<>(heap);
+        top.sort(comparator);
+        return top;
+    }
+
+    private static String encodeCursor(IndexState.Match last, String sortField) {
+        ProductIndexRow row = last.row();
+        return PageCursor.encode(
+                String.valueOf(sortField),
+                Double.toString(last.score()),
+                row.createdTime() != null ? row.createdTime().toString() : null,
+                row.productRating() != null ? row.productRating().toString() : null,
+                row.price() != null ? row.price().toPlainString() : null,
+                row.productId()
+        );
+    }
+
+    /**
+     * 把游标还原为一个只包含排序字段的 Match，用同一个比较器定位
+     */
+    private static IndexState.Match decodeCursor(String cursor, String sortField) {
+        String[] parts = PageCursor.decode(cursor, 6);
+        if (!String.valueOf(sortField).equals(parts[0]) || parts[1] == null || parts[5] == null) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        try {
+            ProductIndexRow row = new ProductIndexRow(
+                    parts[5], null, null,
+                    parts[4] != null ? new BigDecimal(parts[4]) : null,
+                    parts[3] != null ? Double.valueOf(parts[3]) : null,
+                    parts[2] != null ? OffsetDateTime.parse(parts[2]) : null,
+                    null, null, null, null
+            );
+            return new IndexState.Match(row, Double.parseDouble(parts[1]));
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    // --- 分面与排序 ---
+
+    private static ProductFacetsDto toFacets(IndexState.Result result, IndexState state) {
+        List<ProductFacetsDto.PriceBucket> priceBuckets = new ArrayList<>();
+        long[] edges = IndexState.PRICE_EDGES_CENTS;
+        for (int b = 0; b <= edges.length; b++) {
+            if (result.priceCounts()[b] == 0) continue;
+            BigDecimal min = b == 0 ? BigDecimal.ZERO : BigDecimal.valueOf(edges[b - 1], 2);
+            BigDecimal max = b == edges.length ? null : BigDecimal.valueOf(edges[b], 2);
+            priceBuckets.add(new ProductFacetsDto.PriceBucket(min, max, result.priceCounts()[b]));
+        }
+
+        List<ProductFacetsDto.RatingBand> ratingBands = new ArrayList<>();
+        for (int r = 0; r < IndexState.RATING_THRESHOLDS.length; r++) {
+            ratingBands.add(new ProductFacetsDto.RatingBand(IndexState.RATING_THRESHOLDS[r], result.ratingCounts()[r]));
+        }
+
+        return new ProductFacetsDto(
+                toFacetCounts(result.categoryCounts(), state.categories()),
+                toFacetCounts(result.subCategoryCounts(), state.subCategories()),
+                priceBuckets,
+                ratingBands
+        );
+    }
+
+    private static List<ProductFacetsDto.FacetCount> toFacetCounts(int[] counts, IndexState.Ordinals ordinals) {
+        List<ProductFacetsDto.FacetCount> facetCounts = new ArrayList<>();
+        for (int ordinal = 0; ordinal < counts.length; ordinal++) {
+            if (counts[ordinal] > 0) {
+                facetCounts.add(new ProductFacetsDto.FacetCount(ordinals.id(ordinal), ordinals.name(ordinal), counts[ordinal]));
+            }
+        }
+        // 数量多的在前
+        facetCounts.sort(Comparator.comparingLong(ProductFacetsDto.FacetCount::count).reversed());
+        return facetCounts;
+    }
+
+    static Comparator<IndexState.Match> buildComparator(String sortField) {
+        // 与 ProductDaoImpl.buildSearchOrderBy 的排序字段一致；默认按相关度
+        Comparator<IndexState.Match> primary;
+        if ("created_time".equals(sortField)) {
+            primary = Comparator.comparing((IndexState.Match m) -> m.row().createdTime(), Comparator.nullsLast(Comparator.reverseOrder()));
+        } else if ("product_rating".equals(sortField)) {
+            primary = Comparator.comparing((IndexState.Match m) -> m.row().productRating(), Comparator.nullsLast(Comparator.reverseOrder()));
+        } else if ("price_asc".equals(sortField)) {
+            primary = Comparator.comparing((IndexState.Match m) -> m.row().price(), Comparator.nullsLast(Comparator.naturalOrder()));
+        } else if ("price_desc".equals(sortField)) {
+            primary = Comparator.comparing((IndexState.Match m) -> m.row().price(), Comparator.nullsLast(Comparator.reverseOrder()));
+        } else {
+            primary = Comparator.comparingDouble(IndexState.Match::score).reversed();
+        }
+        // 相同排序值时依次按相关度、创建时间、ID，保证分页稳定
+        return primary
+                .thenComparing(Comparator.comparingDouble(IndexState.Match::score).reversed())
+                .thenComparing(m -> m.row().createdTime(), Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(m -> m.row().productId());
+    }
+}
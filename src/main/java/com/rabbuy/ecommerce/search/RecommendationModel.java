@@ -0,0 +1,178 @@
+package com.rabbuy.ecommerce.search;
+
+import com.rabbuy.ecommerce.dto.ProductIndexRow;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * 相似商品的打分模型 (非线程安全，由 ProductRecommendationIndex 加锁访问)
+ * 两个商品的相似度 = 共同购买 (余弦) + 同子分类 / 同主分类 + 商品名词项的 Jaccard 系数
+ * 候选商品只来自共同购买、共享名称词项和同子分类三个来源，不与全部商品两两比较
+ */
+final class RecommendationModel {
+
+    private static final double CO_PURCHASE_WEIGHT = 3.0;
+    private static final double NAME_WEIGHT = 2.0;
+    private static final double SUB_CATEGORY_WEIGHT = 1.0;
+    private static final double CATEGORY_WEIGHT = 0.3;
+
+    // 出现在过多商品名中的词项 (例如 "新款") 不用于产生候选，只参与打分
+    private static final int MAX_TOKEN_CANDIDATES = 500;
+    // 同子分类的候选数量上限
+    private static final int MAX_SUB_CATEGORY_CANDIDATES = 200;
+
+    private record Item(String productId, String subCategoryId, String categoryId, Set<String> tokens) {
+    }
+
+    private final Map<String, Item> items = new HashMap<>();
+    private final Map<String, Set<String>> productsByToken = new HashMap<>();
+    private final Map<String, Set<String>> productsBySubCategory = new HashMap<>();
+
+    // 商品 -> (共同购买的商品 -> 同时出现的订单数)，以及每个商品出现的订单数
+    private final Map<String, Map<String, Integer>> coPurchases = new HashMap<>();
+    private final Map<String, Integer> purchaseCounts = new HashMap<>();
+
+    void put(ProductIndexRow row) {
+        remove(row.productId());
+        Item item = new Item(row.productId(), row.subCategoryId(), row.categoryId(),
+                new HashSet<>(SearchTokenizer.tokenizeDocument(row.productName())));
+        items.put(item.productId(), item);
+        for (String token : item.tokens()) {
+            productsByToken.computeIfAbsent(token, k -> new LinkedHashSet<>()).add(item.productId());
+        }
+        if (item.subCategoryId() != null) {
+            productsBySubCategory.computeIfAbsent(item.subCategoryId(), k -> new LinkedHashSet<>()).add(item.productId());
+        }
+    }
+
+    /**
+     * 移除商品 (下架或删除)；共同购买记录保留，商品重新上架后仍然有效
+     */
+    void remove(String productId) {
+        Item item = items.remove(productId);
+        if (item == null) {
+            return;
+        }
+        for (String token : item.tokens()) {
+            Set<String> products = productsByToken.get(token);
+            if (products != null) {
+                products.remove(productId);
+                if (products.isEmpty()) productsByToken.remove(token);
+            }
+        }
+        if (item.subCategoryId() != null) {
+            Set<String> products = productsBySubCategory.get(item.subCategoryId());
+            if (products != null) products.remove(productId);
+        }
+    }
+
+    /**
+     * 记录一个订单中一起购买的商品 (已去重)
+     */
+    void addBasket(List<String> productIds) {
+        for (String productId : productIds) {
+            purchaseCounts.merge(productId, 1, Integer::sum);
+        }
+        for (int i = 0; i < productIds.size(); i++) {
+            for (int j = i + 1; j < productIds.size(); j++) {
+                String a = productIds.get(i);
+                String b = productIds.get(j);
+                coPurchases.computeIfAbsent(a, k -> new HashMap<>()).merge(b, 1, Integer::sum);
+                coPurchases.computeIfAbsent(b, k -> new HashMap<>()).merge(a, 1, Integer::sum);
+            }
+        }
+    }
+
+    Iterable<String> productIds() {
+        return items.keySet();
+    }
+
+    /**
+     * 计算与指定商品最相似的前 k 个在售商品 (按相似度降序)
+     */
+    String[] topK(String productId, int k) {
+        Item item = items.get(productId);
+        if (item == null) {
+            return new String[0];
+        }
+
+        // 1. 收集候选
+        Set<String> candidates = new HashSet<>();
+        Map<String, Integer> coPurchased = coPurchases.getOrDefault(productId, Map.of());
+        candidates.addAll(coPurchased.keySet());
+        for (String token : item.tokens()) {
+            Set<String> products = productsByToken.get(token);
+            if (products != null && products.size() <= MAX_TOKEN_CANDIDATES) {
+                candidates.addAll(products);
+            }
+        }
+        if (item.subCategoryId() != null) {
+            int added = 0;
+            for (String other : productsBySubCategory.getOrDefault(item.subCategoryId(), Set.of())) {
+                if (added++ >= MAX_SUB_CATEGORY_CANDIDATES) break;
+                candidates.add(other);
+            }
+        }
+        candidates.remove(productId);
+
+        // 2. 打分并用小顶堆保留前 k 个
+        record Scored(String productId, double score) {
+        }
+        PriorityQueue<Scored> heap = new PriorityQueue<>(Comparator.comparingDouble(Scored::score));
+        int purchases = purchaseCounts.getOrDefault(productId, 0);
+        for (String candidateId : candidates) {
+            Item candidate = items.get(candidateId);
+            if (candidate == null) {
+                continue; // 共同购买的商品已下架
+            }
+            double score = 0;
+            Integer together = coPurchased.get(candidateId);
+            if (together != null) {
+                int candidatePurchases = purchaseCounts.getOrDefault(candidateId, 0);
+                score += CO_PURCHASE_WEIGHT * together / Math.sqrt((double) purchases * candidatePurchases);
+            }
+            score += NAME_WEIGHT * jaccard(item.tokens(), candidate.tokens());
+            if (item.subCategoryId() != null && item.subCategoryId().equals(candidate.subCategoryId())) {
+                score += SUB_CATEGORY_WEIGHT;
+            } else if (item.categoryId() != null && item.categoryId().equals(candidate.categoryId())) {
+                score += CATEGORY_WEIGHT;
+            }
+            if (score <= 0) {
+                continue;
+            }
+            heap.offer(new Scored(candidateId, score));
+            if (heap.size() > k) {
+                heap.poll();
+            }
+        }
+
+        List<Scored> ranked = new ArrayList<>(heap);
+        ranked.sort(Comparator.comparingDouble(Scored::score).reversed().thenComparing(Scored::productId));
+        String[] result = new String[ranked.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ranked.get(i).productId();
+        }
+        return result;
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0;
+        }
+        Set<String> smaller = a.size() <= b.size() ? a : b;
+        Set<String> larger = smaller == a ? b : a;
+        int shared = 0;
+        for (String token : smaller) {
+            if (larger.contains(token)) shared++;
+        }
+        return (double) shared / (a.size() + b.size() - shared);
+    }
+}
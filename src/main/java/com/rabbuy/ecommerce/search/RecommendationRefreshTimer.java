@@ -0,0 +1,38 @@
+package com.rabbuy.ecommerce.search;
+
+import jakarta.ejb.Lock;
+import jakarta.ejb.LockType;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 每 10 秒检查一次相似商品是否需要重建 (尚未构建、到期或上次失败后到了重试时间)，重建在定时器线程上完成
+ * 非持久化定时器；重建耗时超过间隔时跳过期间的触发，不排队
+ */
+@Singleton
+@Lock(LockType.READ)
+public class RecommendationRefreshTimer {
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Inject
+    private ProductRecommendationIndex productRecommendationIndex;
+
+    @Schedule(hour = "*", minute = "*", second = "*/10", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void refresh() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            productRecommendationIndex.refreshIfDue();
+        } finally {
+            running.set(false);
+        }
+    }
+}
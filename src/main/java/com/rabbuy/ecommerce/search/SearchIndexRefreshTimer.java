@@ -0,0 +1,38 @@
+package com.rabbuy.ecommerce.search;
+
+import jakarta.ejb.Lock;
+import jakarta.ejb.LockType;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 每分钟检查一次搜索索引是否需要重建 (到期或已删除文档过多)，重建在定时器线程上完成，不占用搜索请求
+ * 非持久化定时器；重建耗时超过间隔时跳过期间的触发，不排队
+ */
+@Singleton
+@Lock(LockType.READ)
+public class SearchIndexRefreshTimer {
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Inject
+    private ProductSearchIndex productSearchIndex;
+
+    @Schedule(hour = "*", minute = "*", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void refresh() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            productSearchIndex.refreshIfDue();
+        } finally {
+            running.set(false);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.rabbuy.ecommerce.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 商品搜索分词器
+ * - 拉丁字母 / 数字：按连续的字母数字切分为单词 (小写)
+ * - 中日韩文字：文档按单字 + 相邻二元组 (bigram) 建索引；查询时连续两个及以上的字只用二元组，单个字用单字
+ * 其他字符 (空格、标点) 视为分隔符
+ */
+public final class SearchTokenizer {
+
+    // 过长的 "单词" 通常是 URL、编码等噪声，不建索引
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * 文档分词：返回的词项可以重复 (用于计算词频)
+     */
+    public static List<String> tokenizeDocument(String text) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(text, false, tokens);
+        return tokens;
+    }
+
+    /**
+     * 查询分词：返回去重后的词项 (保持出现顺序)
+     */
+    public static List<String> tokenizeQuery(String text) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(text, true, tokens);
+        return new ArrayList<>(new LinkedHashSet<>(tokens));
+    }
+
+    private static void tokenize(String text, boolean query, List<String> out) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        int[] cps = text.toLowerCase(Locale.ROOT).codePoints().toArray();
+        int i = 0;
+        while (i < cps.length) {
+            int start = i;
+            if (isCjk(cps[i])) {
+                while (i < cps.length && isCjk(cps[i])) i++;
+                emitCjkRun(cps, start, i, query, out);
+            } else if (Character.isLetterOrDigit(cps[i])) {
+                while (i < cps.length && Character.isLetterOrDigit(cps[i]) && !isCjk(cps[i])) i++;
+                if (i - start <= MAX_TOKEN_LENGTH) {
+                    out.add(new String(cps, start, i - start));
+                }
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private static void emitCjkRun(int[] cps, int start, int end, boolean query, List<String> out) {
+        int length = end - start;
+        if (!query || length == 1) {
+            for (int j = start; j < end; j++) {
+                out.add(new String(cps, j, 1));
+            }
+        }
+        for (int j = start; j + 1 < end; j++) {
+            out.add(new String(cps, j, 2));
+        }
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -2,7 +2,7 @@ package com.rabbuy.ecommerce.service;
 
 import com.rabbuy.ecommerce.dto.CartItem;
 import com.rabbuy.ecommerce.dto.CartResponseDto;
-import com.rabbuy.ecommerce.entity.User;
+import com.rabbuy.ecommerce.dto.CartVersionDto;
 import jakarta.ws.rs.NotFoundException;
 
 import java.util.List;
@@ -12,18 +12,30 @@ public interface CartService {
 
     /**
      * 获取用户购物车详情（包含实时商品信息）
-     *
+     * 用户还没有购物车时返回版本号为 0 的空购物车 (id 为 null)
      */
-    CartResponseDto getCartByUserId(String userId) throws NotFoundException;
+    CartResponseDto getCartByUserId(String userId);
 
     /**
      * 完全覆盖用户的购物车
+     * 以下修改方法在用户还没有购物车、且修改后购物车不为空时创建购物车
      *
+     * @param expectedVersion 可选；不为 null 时购物车必须仍是该版本，否则抛出 409
+     */
+    CartVersionDto saveCart(String userId, List<CartItem> itemsDto, Long expectedVersion) throws NotFoundException;
+
+    /**
+     * 添加商品：已在购物车中时累加数量，否则追加到末尾
+     */
+    CartVersionDto addItem(String userId, String productId, int count, Long expectedVersion) throws NotFoundException;
+
+    /**
+     * 设置商品数量，数量为 0 时移除
      */
-    void saveCart(String userId, List<CartItem> itemsDto) throws NotFoundException;
+    CartVersionDto setItemCount(String userId, String productId, int count, Long expectedVersion) throws NotFoundException;
 
     /**
-     * 创建空购物车 (用于 UserService)
+     * 移除商品 (不在购物车中时不做修改)
      */
-    void createEmptyCart(User user);
+    CartVersionDto removeItem(String userId, String productId, Long expectedVersion) throws NotFoundException;
 }
\ No newline at end of file
@@ -1,108 +1,170 @@
 package com.rabbuy.ecommerce.service;
 
-import com.rabbuy.ecommerce.dao.CartDao;
+import com.rabbuy.ecommerce.cache.ProductSummaryCache;
+import com.rabbuy.ecommerce.cart.CartStore;
+import com.rabbuy.ecommerce.cart.JsonCartStore;
+import com.rabbuy.ecommerce.cart.LineCartStore;
+import com.rabbuy.ecommerce.cart.WriteBehindCartStore;
 import com.rabbuy.ecommerce.dao.ProductDao;
+import com.rabbuy.ecommerce.dto.CartContentRow;
 import com.rabbuy.ecommerce.dto.CartDetailItemDto;
 import com.rabbuy.ecommerce.dto.CartItem;
 import com.rabbuy.ecommerce.dto.CartResponseDto;
-import com.rabbuy.ecommerce.entity.Cart;
-import com.rabbuy.ecommerce.entity.Product;
-import com.rabbuy.ecommerce.entity.User;
+import com.rabbuy.ecommerce.dto.CartVersionDto;
+import com.rabbuy.ecommerce.dto.ProductSummary;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import jakarta.transaction.Transactional;
 import jakarta.ws.rs.NotFoundException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @ApplicationScoped // CDI Bean
 public class CartServiceImpl implements CartService {
 
-    @Inject // 注入 Cart DAO
-    private CartDao cartDao;
-
     @Inject // 注入 Product DAO (用于获取实时商品详情)
     private ProductDao productDao;
 
+    @Inject // 商品摘要的短期缓存 (多个请求共享)
+    private ProductSummaryCache productSummaryCache;
+
+    // 购物车内容的存储实现，由 cart.storage 选择 (未选中的实现不会被创建)
+    @Inject
+    private JsonCartStore jsonCartStore;
+
+    @Inject
+    private LineCartStore lineCartStore;
+
+    @Inject
+    private WriteBehindCartStore writeBehindCartStore;
+
+    // json (cart_cart.products)、lines (cart_line 表) 或 write-behind (内存合并修改，定时写回 cart_cart)
+    @Inject
+    @ConfigProperty(name = "cart.storage", defaultValue = "json")
+    private String storageMode;
+
+    private CartStore cartStore;
+
+    @PostConstruct
+    void selectStore() {
+        cartStore = switch (storageMode.toLowerCase()) {
+            case "lines" -> lineCartStore;
+            case "write-behind" -> writeBehindCartStore;
+            default -> jsonCartStore;
+        };
+    }
+
     @Override
-    public CartResponseDto getCartByUserId(String userId) throws NotFoundException {
-        // 1. 获取购物车实体
-        Cart cart = cartDao.findByUserId(userId)
-                .orElseThrow(() -> new NotFoundException("Cart not found for user"));
+    public CartResponseDto getCartByUserId(String userId) {
+        // 1. 获取购物车内容 (write-behind 时包括尚未写回的修改)
+        Optional<CartContentRow> found = cartStore.find(userId);
+        if (found.isEmpty()) {
+            // 还没有购物车：返回虚拟的空购物车，第一次加入商品时才创建
+            return new CartResponseDto(null, userId, List.of(), 0, null, null);
+        }
+        CartContentRow cart = found.get();
 
-        List<CartItem> storedItems = cart.getProducts();
-        List<CartDetailItemDto> detailedItems = new ArrayList<>();
+        List<CartItem> storedItems = cart.products();
+        List<CartDetailItemDto> detailedItems = new ArrayList<>(storedItems.size());
+
+        // 2. 一次性取得所有商品的实时摘要：先查共享缓存，未命中的用一条 IN 查询加载 (包含所有状态)
+        List<String> productIds = new ArrayList<>(storedItems.size());
+        for (CartItem item : storedItems) {
+            productIds.add(item.getId());
+        }
+        Map<String, ProductSummary> summaries = productSummaryCache.getAll(productIds, productDao::findSummariesByIds);
 
-        // 2. 遍历购物车中存储的商品，查询实时数据
+        // 3. 按购物车中的顺序组装
         for (CartItem item : storedItems) {
-            String productId = item.getId();
-            int count = item.getCount();
-
-            // 3. 查询实时商品信息 (使用 findActiveById 检查商品是否有效)
-            // Django 直接 Product.objects.get，我们用 findById (包含所有状态)
-            Optional<Product> productOpt = productDao.findById(productId);
-
-            if (productOpt.isPresent()) {
-                Product p = productOpt.get();
-
-                // 4. 检查商品状态 (Django 中的 status 逻辑)
-                boolean isValid = !p.isDeleted() && "1".equals(p.getStatus()) && p.getStockQuantity() > 0;
-
-                detailedItems.add(new CartDetailItemDto(
-                        p.getProductId(),
-                        p.getProductName(),
-                        count,
-                        p.getPrice(), // 实时价格
-                        (p.getImages() != null && !p.getImages().isEmpty()) ? p.getImages().get(0) : null, // 实时图片
-                        isValid,  // 实时状态
-                        isValid   // 实时是否可选
-                ));
-            } else {
-                // 如果商品在数据库中被物理删除了（但在购物车列表里还有引用）
-                detailedItems.add(new CartDetailItemDto(
-                        productId,
-                        "Product not found", // 或 "商品已失效"
-                        count,
-                        BigDecimal.ZERO,
-                        null,
-                        false, // 无效状态
-                        false  // 不可选
-                ));
-            }
+            detailedItems.add(toDetailItem(item.getId(), item.getCount(), summaries.get(item.getId())));
         }
 
         // 5. 构建并返回 DTO
         return new CartResponseDto(
-                cart.getCartId(),
-                cart.getUser().getId(),
+                cart.cartId(),
+                userId,
                 detailedItems,
-                cart.getCreatedTime(),
-                cart.getUpdatedTime()
+                cart.version(),
+                cart.createdTime(),
+                cart.updatedTime()
         );
     }
 
-    @Override
-    @Transactional // 写入操作，需要事务
-    public void saveCart(String userId, List<CartItem> itemsDto) throws NotFoundException {
-        //
-        Cart cart = cartDao.findByUserId(userId)
-                .orElseThrow(() -> new NotFoundException("Cart not found for user"));
+    private static CartDetailItemDto toDetailItem(String productId, int count, ProductSummary p) {
+        if (p != null) {
+            // 4. 检查商品状态 (Django 中的 status 逻辑)
+            boolean isValid = p.isPurchasable();
+
+            return new CartDetailItemDto(
+                    p.productId(),
+                    p.productName(),
+                    count,
+                    p.price(), // 实时价格
+                    p.image(), // 实时图片
+                    isValid,  // 实时状态
+                    isValid   // 实时是否可选
+            );
+        }
+        // 如果商品在数据库中被物理删除了（但在购物车列表里还有引用）
+        return new CartDetailItemDto(
+                productId,
+                "Product not found", // 或 "商品已失效"
+                count,
+                BigDecimal.ZERO,
+                null,
+                false, // 无效状态
+                false  // 不可选
+        );
+    }
 
+    @Override
+    public CartVersionDto saveCart(String userId, List<CartItem> itemsDto, Long expectedVersion) throws NotFoundException {
         // 业务逻辑：完全覆盖
-        cart.setProducts(itemsDto); // itemsDto 是 List<CartItem>，AttributeConverter 会自动处理
+        return cartStore.replace(userId, itemsDto, expectedVersion);
+    }
+
+    @Override
+    public CartVersionDto addItem(String userId, String productId, int count, Long expectedVersion) throws NotFoundException {
+        requireProductId(productId);
+        if (count < 1) {
+            throw new IllegalArgumentException("Count must be at least 1.");
+        }
+        // 只允许添加存在且未删除的商品 (下架或无库存的商品仍可加入，展示时标记为不可选)
+        ProductSummary summary = productSummaryCache.getAll(List.of(productId), productDao::findSummariesByIds).get(productId);
+        if (summary == null || summary.deleted()) {
+            throw new NotFoundException("Product not found");
+        }
+
+        return cartStore.add(userId, productId, count, expectedVersion);
+    }
+
+    @Override
+    public CartVersionDto setItemCount(String userId, String productId, int count, Long expectedVersion) throws NotFoundException {
+        requireProductId(productId);
+        if (count < 0) {
+            throw new IllegalArgumentException("Count must not be negative.");
+        }
+        if (count == 0) {
+            return removeItem(userId, productId, expectedVersion);
+        }
 
-        cartDao.update(cart); // 持久化更改
+        return cartStore.setCount(userId, productId, count, expectedVersion);
     }
 
     @Override
-    @Transactional
-    public void createEmptyCart(User user) {
-        //
-        Cart newCart = new Cart();
-        newCart.setUser(user);
-        cartDao.save(newCart);
+    public CartVersionDto removeItem(String userId, String productId, Long expectedVersion) throws NotFoundException {
+        requireProductId(productId);
+        return cartStore.remove(userId, productId, expectedVersion);
+    }
+
+    private static void requireProductId(String productId) {
+        if (productId == null || productId.isBlank()) {
+            throw new IllegalArgumentException("Product id is required.");
+        }
     }
 }
\ No newline at end of file
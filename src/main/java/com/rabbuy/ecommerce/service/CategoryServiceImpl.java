@@ -1,20 +1,19 @@
 package com.rabbuy.ecommerce.service;
 
 
+import com.rabbuy.ecommerce.cache.CategoryTree;
+import com.rabbuy.ecommerce.cache.ResponseCache;
 import com.rabbuy.ecommerce.dao.CategoryDao;
-import com.rabbuy.ecommerce.dao.ProductDao;
 import com.rabbuy.ecommerce.dao.SubCategoryDao;
 import com.rabbuy.ecommerce.dto.*;
 import com.rabbuy.ecommerce.entity.Category;
-import com.rabbuy.ecommerce.entity.Product;
-import com.rabbuy.ecommerce.entity.SubCategory;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.NotFoundException;
 
-import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -28,9 +27,22 @@ public class CategoryServiceImpl implements CategoryService {
     private SubCategoryDao subCategoryDao;
 
     @Inject
-    private ProductDao productDao;
+    private ProductSamplingService productSamplingService;
+
+    @Inject
+    private HomeFeedService homeFeedService;
+
+    @Inject
+    private ResponseCache responseCache;
+
+    @Inject
+    private CategoryTree categoryTree;
 
     // 辅助方法：将 Entity 转换为 DTO
+    private CategoryAdminDto toAdminDto(CategoryTree.CategoryNode node) {
+        return new CategoryAdminDto(node.id(), node.name(), node.status(), node.images());
+    }
+
     private CategoryAdminDto toAdminDto(Category entity) {
         return new CategoryAdminDto(
                 entity.getCategoryId(),
@@ -43,12 +55,12 @@ public class CategoryServiceImpl implements CategoryService {
     /**
      * 获取导航栏分类列表
      * 对应 Python: get_category_nav_view
-     * 修复：使用 DAO 中已存在的 findActiveCategories(7) 方法
+     * 从内存分类树中取前 7 个启用分类
      */
     @Override
     public List<CategoryNavDto> getNavigationCategories() {
-        // 直接调用 DAO 的方法获取前 7 个启用分类
-        return categoryDao.findActiveCategories(7).stream()
+        return categoryTree.activeCategories().stream()
+                .limit(7)
                 .map(this::toNavDto)
                 .collect(Collectors.toList());
     }
@@ -56,10 +68,10 @@ public class CategoryServiceImpl implements CategoryService {
     /**
      * 辅助方法：转换为简单的导航 DTO (只包含 id 和 name)
      */
-    private CategoryNavDto toNavDto(Category entity) {
+    private CategoryNavDto toNavDto(CategoryTree.CategoryNode node) {
         return new CategoryNavDto(
-                entity.getCategoryId(),
-                entity.getCategoryName()
+                node.id(),
+                node.name()
         );
     }
 
@@ -84,7 +96,7 @@ public class CategoryServiceImpl implements CategoryService {
 
     @Override
     public Optional<CategoryAdminDto> getCategoryById(String id) {
-        return categoryDao.findById(id).map(this::toAdminDto);
+        return categoryTree.category(id).map(this::toAdminDto);
     }
 
     @Override
@@ -103,6 +115,9 @@ public class CategoryServiceImpl implements CategoryService {
         }
 
         categoryDao.save(newCategory); // 保存实体
+        categoryTree.putCategory(newCategory);
+        homeFeedService.invalidate();
+        responseCache.invalidate(ResponseCache.CATEGORY_NAV);
 
         return toAdminDto(newCategory); // 返回 DTO
     }
@@ -129,6 +144,12 @@ public class CategoryServiceImpl implements CategoryService {
         // 在 @Transactional 方法结束时，JPA 会自动检测更改并执行 UPDATE SQL
         // 显式调用 categoryDao.update(category) (即 em.merge) 也可以，但在这里不是必须的。
         // categoryDao.update(category);
+        categoryTree.putCategory(category);
+        homeFeedService.invalidate();
+        // 商品详情中也包含分类名称
+        responseCache.invalidate(ResponseCache.CATEGORY_NAV);
+        responseCache.invalidate(ResponseCache.CATEGORY_ALL + id);
+        responseCache.invalidatePrefix(ResponseCache.PRODUCT_DETAIL);
 
         return toAdminDto(category);
     }
@@ -148,54 +169,53 @@ public class CategoryServiceImpl implements CategoryService {
         }
 
         categoryDao.delete(category);
+        categoryTree.removeCategory(id);
+        homeFeedService.invalidate();
+        responseCache.invalidate(ResponseCache.CATEGORY_NAV);
+        responseCache.invalidate(ResponseCache.CATEGORY_ALL + id);
     }
 
     @Override
     public CategoryDetailDto getCategoryDetails(String categoryId) {
-        // 1. 获取一级分类
-        Category category = categoryDao.findById(categoryId)
-                .filter(c -> "1".equals(c.getStatus()))
+        // 1. 获取一级分类 (内存分类树)
+        CategoryTree.CategoryNode category = categoryTree.category(categoryId)
+                .filter(CategoryTree.CategoryNode::isActive)
                 .orElseThrow(() -> new NotFoundException("Category not found or inactive"));
 
         // 2. 获取该分类下的所有启用二级分类
-        List<SubCategory> allSubCategories = subCategoryDao.findActiveByCategoryId(categoryId);
+        List<CategoryTree.SubCategoryNode> allSubCategories = categoryTree.activeChildren(categoryId);
 
         // 3. 截取前 7 个
-        List<SubCategory> limitedSubCats = allSubCategories.stream()
+        List<CategoryTree.SubCategoryNode> limitedSubCats = allSubCategories.stream()
                 .limit(7)
                 .collect(Collectors.toList());
 
-        // 4. 构造二级分类 DTO 列表
-        List<CategoryDetailDto.SubCategoryDetail> subCategoryDetails = limitedSubCats.stream().map(sub -> {
+        // 4. 每个二级分类随机抽取 4 个商品 (一条 IN 查询加载全部)
+        Map<String, List<ProductListRow>> sampled = productSamplingService.sampleActiveBySubCategories(
+                limitedSubCats.stream().map(CategoryTree.SubCategoryNode::id).collect(Collectors.toList()), 4);
 
-            // 4.1 获取该二级分类下的所有可用商品
-            List<Product> products = productDao.findActiveBySubCategoryForRandom(sub.getSubCateId());
-
-            // 4.2 随机打乱并取前 4 个
-            Collections.shuffle(products);
-            List<Product> randomProducts = products.stream()
-                    .limit(4)
-                    .collect(Collectors.toList());
+        // 5. 构造二级分类 DTO 列表
+        List<CategoryDetailDto.SubCategoryDetail> subCategoryDetails = limitedSubCats.stream().map(sub -> {
 
-            // 4.3 转换为 ProductListDto (修复点：使用 fromHomeView 方法)
-            List<ProductListDto> productDtos = randomProducts.stream()
+            // 5.1 转换为 ProductListDto (投影查询结果，不含描述)
+            List<ProductListDto> productDtos = sampled.get(sub.id()).stream()
                     .map(ProductListDto::fromHomeView) // 使用现有的静态方法进行转换
                     .collect(Collectors.toList());
 
-            // 4.4 返回二级分类内部 DTO
+            // 5.2 返回二级分类内部 DTO
             return new CategoryDetailDto.SubCategoryDetail(
-                    sub.getSubCateId(),
-                    sub.getSubCateName(),
-                    sub.getSubCateImage(),
+                    sub.id(),
+                    sub.name(),
+                    sub.image(),
                     productDtos
             );
         }).collect(Collectors.toList());
 
-        // 5. 返回最终的一级分类详情 DTO
+        // 6. 返回最终的一级分类详情 DTO
         return new CategoryDetailDto(
-                category.getCategoryId(),
-                category.getCategoryName(),
-                category.getCategoryImages(),
+                category.id(),
+                category.name(),
+                category.images(),
                 subCategoryDetails
         );
     }
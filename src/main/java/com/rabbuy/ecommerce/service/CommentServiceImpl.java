@@ -1,13 +1,17 @@
 package com.rabbuy.ecommerce.service;
 
+import com.rabbuy.ecommerce.cache.OrderItemCountCache;
+import com.rabbuy.ecommerce.cache.ResponseCache;
 import com.rabbuy.ecommerce.dao.CommentDao;
 import com.rabbuy.ecommerce.dao.OrderItemDao;
 import com.rabbuy.ecommerce.dao.ProductDao;
 import com.rabbuy.ecommerce.dto.*;
 import com.rabbuy.ecommerce.entity.Comment;
 import com.rabbuy.ecommerce.entity.OrderItem;
+import com.rabbuy.ecommerce.entity.OrderItemStatus;
 import com.rabbuy.ecommerce.entity.Product;
 import com.rabbuy.ecommerce.entity.User;
+import com.rabbuy.ecommerce.search.ProductSearchIndex;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
@@ -29,6 +33,15 @@ public class CommentServiceImpl implements CommentService {
     @Inject
     private OrderItemDao orderItemDao;
 
+    @Inject
+    private OrderItemCountCache orderItemCountCache;
+
+    @Inject
+    private ResponseCache responseCache;
+
+    @Inject // 评分排序和评分筛选依赖索引中的评分
+    private ProductSearchIndex productSearchIndex;
+
     // 辅助方法：将 Comment 转换为 CommentResponseDto
     // 注意：这依赖于 CommentDao.findByProductId 预加载了关联数据
     private CommentResponseDto toResponseDto(Comment comment) {
@@ -90,10 +103,14 @@ public class CommentServiceImpl implements CommentService {
         product.setRatingNum(newRatingNum);
         product.setProductRating(newRating);
         // (事务提交时，JPA 会自动更新受管的 product 实体)
+        responseCache.invalidate(ResponseCache.PRODUCT_DETAIL + product.getProductId());
+        productSearchIndex.upsertAfterCommit(product);
 
         // 3. 业务逻辑：更新订单项状态
-        orderItem.setItemStatus("8"); // "8" = Done
+        orderItem.setItemStatus(OrderItemStatus.COMMENTED); // "8" = Done
         // (事务提交时，JPA 会自动更新受管的 orderItem 实体)
+        orderItem.getOrder().refreshSummary();
+        orderItemCountCache.invalidate(orderItem.getOrder().getUser().getId());
 
         // 4. 创建新评论
         Comment comment = new Comment();
@@ -155,6 +172,8 @@ public class CommentServiceImpl implements CommentService {
             double totalRating = (product.getProductRating() * product.getRatingNum()) - oldRating + newRating;
             product.setProductRating(totalRating / product.getRatingNum());
             // (事务提交时自动更新)
+            responseCache.invalidate(ResponseCache.PRODUCT_DETAIL + product.getProductId());
+            productSearchIndex.upsertAfterCommit(product);
         }
 
         // 2. 更新评论
@@ -191,6 +210,8 @@ public class CommentServiceImpl implements CommentService {
             product.setProductRating(0.0);
         }
         // (事务提交时自动更新)
+        responseCache.invalidate(ResponseCache.PRODUCT_DETAIL + product.getProductId());
+        productSearchIndex.upsertAfterCommit(product);
 
         // 2. 删除评论
         commentDao.delete(comment);
@@ -0,0 +1,38 @@
+package com.rabbuy.ecommerce.service;
+
+import jakarta.ejb.Lock;
+import jakarta.ejb.LockType;
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.inject.Inject;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 每秒检查一次首页数据是否需要重新生成 (到期或被修改操作提前)，生成在定时器线程上完成，不占用请求线程
+ * 非持久化定时器；生成耗时超过一秒时跳过期间的触发，不排队
+ */
+@Singleton
+@Lock(LockType.READ)
+public class HomeFeedRefreshTimer {
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Inject
+    private HomeFeedService homeFeedService;
+
+    @Schedule(hour = "*", minute = "*", second = "*", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void refresh() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            homeFeedService.refreshIfDue();
+        } finally {
+            running.set(false);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.rabbuy.ecommerce.service;
+
+/**
+ * 首页公开接口 (/home/new, /home/hot, /home/products, /home/recommend) 的预生成响应
+ * 返回的是已经序列化好的完整响应体 ({"code":1,"data":...})，资源类直接写出即可
+ */
+public interface HomeFeedService {
+
+    byte[] getNewProductsJson();
+
+    byte[] getHotProductsJson();
+
+    /**
+     * 随机部分预先生成多个版本，每次请求轮换返回其中一个
+     */
+    byte[] getHomeProductsJson();
+
+    byte[] getRecommendCategoriesJson();
+
+    /**
+     * 商品或分类被修改后调用，当前事务提交后稍后 (合并短时间内的多次修改) 重新生成
+     */
+    void invalidate();
+
+    /**
+     * 由 HomeFeedRefreshTimer 定时调用：到期 (或被 invalidate 提前) 时重新生成
+     */
+    void refreshIfDue();
+}
@@ -0,0 +1,136 @@
+package com.rabbuy.ecommerce.service;
+
+import com.rabbuy.ecommerce.cache.ResponseCache;
+import com.rabbuy.ecommerce.cache.TransactionCallbacks;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 首页数据由 HomeFeedRefreshTimer 在后台定时重新生成，请求只读取内存中的字节数组
+ * - 到期或被修改操作标记 (事务提交后) 后，下一次定时任务重新生成；生成期间和失败时请求继续使用旧数据
+ */
+@ApplicationScoped
+public class HomeFeedServiceImpl implements HomeFeedService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HomeFeedServiceImpl.class);
+
+    // 与原接口保持一致：新品和热门各 4 个
+    private static final int NEW_LIMIT = 4;
+    private static final int HOT_LIMIT = 4;
+
+    // 生成失败后的重试间隔
+    private static final long RETRY_DELAY_MILLIS = 10_000L;
+
+    private record Snapshot(byte[] newProducts, byte[] hotProducts,
+                            List<byte[]> homeProducts, List<byte[]> recommendCategories) {
+    }
+
+    @Inject
+    private ProductService productService;
+
+    @Inject
+    private TransactionCallbacks transactionCallbacks;
+
+    @Inject
+    @ConfigProperty(name = "home.feed.refresh-seconds", defaultValue = "60")
+    private long refreshSeconds;
+
+    @Inject
+    @ConfigProperty(name = "home.feed.variants", defaultValue = "8")
+    private int variants;
+
+    // 修改操作提交之后延迟多久重新生成 (合并短时间内的多次修改)
+    @Inject
+    @ConfigProperty(name = "home.feed.invalidate-delay-seconds", defaultValue = "2")
+    private long invalidateDelaySeconds;
+
+    private volatile Snapshot snapshot;
+    private final AtomicLong refreshAt = new AtomicLong();
+    private final AtomicInteger rotation = new AtomicInteger();
+
+    // 定时任务完成第一次生成之前 (应用刚启动时) 直接查询数据库，不等待、不加锁
+
+    @Override
+    public byte[] getNewProductsJson() {
+        Snapshot current = snapshot;
+        return current != null ? current.newProducts()
+                : ResponseCache.serialize(productService.getLatestProducts(NEW_LIMIT));
+    }
+
+    @Override
+    public byte[] getHotProductsJson() {
+        Snapshot current = snapshot;
+        return current != null ? current.hotProducts()
+                : ResponseCache.serialize(productService.getHotProducts(HOT_LIMIT));
+    }
+
+    @Override
+    public byte[] getHomeProductsJson() {
+        Snapshot current = snapshot;
+        return current != null ? pick(current.homeProducts())
+                : ResponseCache.serialize(productService.getHomeProducts());
+    }
+
+    @Override
+    public byte[] getRecommendCategoriesJson() {
+        Snapshot current = snapshot;
+        return current != null ? pick(current.recommendCategories())
+                : ResponseCache.serialize(productService.getRecommendCategories());
+    }
+
+    @Override
+    public void invalidate() {
+        // 提交前重新生成会读到旧数据；回滚时不需要重新生成
+        transactionCallbacks.afterCommit(() -> {
+            long deadline = System.currentTimeMillis() + invalidateDelaySeconds * 1000;
+            refreshAt.accumulateAndGet(deadline, Math::min);
+        });
+    }
+
+    private byte[] pick(List<byte[]> variants) {
+        return variants.get(Math.floorMod(rotation.getAndIncrement(), variants.size()));
+    }
+
+    @Override
+    public void refreshIfDue() {
+        long now = System.currentTimeMillis();
+        if (snapshot != null && now < refreshAt.get()) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            // 生成失败时继续使用旧数据；rebuild 已把下次刷新推迟到一个完整间隔之后，这里提前到重试时间
+            logger.warn("Failed to rebuild home feed, serving previous snapshot", e);
+            refreshAt.accumulateAndGet(now + RETRY_DELAY_MILLIS, Math::min);
+        }
+    }
+
+    private void rebuild() {
+        // 先推迟下次刷新时间，生成期间发生的修改会再次把它提前
+        refreshAt.set(System.currentTimeMillis() + refreshSeconds * 1000);
+
+        int count = Math.max(1, variants);
+        List<byte[]> homeProducts = new ArrayList<>(count);
+        List<byte[]> recommendCategories = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            homeProducts.add(ResponseCache.serialize(productService.getHomeProducts()));
+            recommendCategories.add(ResponseCache.serialize(productService.getRecommendCategories()));
+        }
+
+        snapshot = new Snapshot(
+                ResponseCache.serialize(productService.getLatestProducts(NEW_LIMIT)),
+                ResponseCache.serialize(productService.getHotProducts(HOT_LIMIT)),
+                List.copyOf(homeProducts),
+                List.copyOf(recommendCategories)
+        );
+    }
+}
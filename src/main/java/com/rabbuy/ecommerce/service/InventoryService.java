@@ -0,0 +1,38 @@
+package com.rabbuy.ecommerce.service;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 库存服务：位于 OrderService 与 ProductDao 之间，统一处理库存的扣减与恢复
+ * 数据库始终是库存的唯一可信来源：扣减和恢复都是对商品行的条件 UPDATE，没有内存中的预留
+ */
+public interface InventoryService {
+
+    /**
+     * 为整单扣减库存 (必须在调用方的事务中执行)
+     * 任一商品不足时立即返回该商品 ID，调用方应抛出异常使整个事务回滚
+     *
+     * @param quantities 商品 ID -> 数量
+     * @return 库存不足的商品 ID；全部成功时返回 Optional.empty()
+     */
+    Optional<String> reserve(Map<String, Integer> quantities);
+
+    /**
+     * 恢复库存 (例如退款)
+     */
+    void release(String productId, int quantity);
+
+    /**
+     * 批量恢复库存 (必须在调用方的事务中执行)
+     * 每个商品只执行一条 UPDATE，调用方应事先按商品汇总数量
+     *
+     * @param quantities 商品 ID -> 数量
+     */
+    void releaseAll(Map<String, Integer> quantities);
+
+    /**
+     * 商品库存被其他途径修改后 (例如管理员补货) 清除包含该商品库存的缓存
+     */
+    void invalidate(String productId);
+}
@@ -0,0 +1,61 @@
+package com.rabbuy.ecommerce.service;
+
+import com.rabbuy.ecommerce.cache.ProductSummaryCache;
+import com.rabbuy.ecommerce.cache.ResponseCache;
+import com.rabbuy.ecommerce.dao.ProductDao;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 库存扣减直接使用数据库的条件 UPDATE，不在内存中持有可用库存、不做预留和批量写回
+ * 多个实例之间没有需要同步的库存状态；库存变化后只清除包含库存数量的缓存
+ */
+@ApplicationScoped
+public class InventoryServiceImpl implements InventoryService {
+
+    @Inject
+    private ProductDao productDao;
+
+    // 商品详情的缓存响应和商品摘要缓存中包含库存数量
+    @Inject
+    private ResponseCache responseCache;
+
+    @Inject
+    private ProductSummaryCache productSummaryCache;
+
+    @Override
+    public Optional<String> reserve(Map<String, Integer> quantities) {
+        // 每个商品一条条件扣减语句 (调用方保证按 ID 顺序传入)
+        for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+            if (!productDao.decrementStockIfAvailable(entry.getKey(), entry.getValue())) {
+                return Optional.of(entry.getKey());
+            }
+            invalidate(entry.getKey());
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void release(String productId, int quantity) {
+        // 商品可能已被删除，此时 UPDATE 不影响任何行
+        productDao.incrementStock(productId, quantity);
+        invalidate(productId);
+    }
+
+    @Override
+    public void releaseAll(Map<String, Integer> quantities) {
+        for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+            productDao.incrementStock(entry.getKey(), entry.getValue());
+            invalidate(entry.getKey());
+        }
+    }
+
+    @Override
+    public void invalidate(String productId) {
+        responseCache.invalidate(ResponseCache.PRODUCT_DETAIL + productId);
+        productSummaryCache.invalidate(productId);
+    }
+}
@@ -4,6 +4,7 @@ import com.rabbuy.ecommerce.dto.*;
 import com.rabbuy.ecommerce.entity.OrderItem;
 import jakarta.ws.rs.NotFoundException;
 
+import java.util.List;
 import java.util.UUID;
 
 public interface OrderService {
@@ -83,4 +84,13 @@ public interface OrderService {
      */
     OrderItem updateAdminItemStatus(AdminOrderItemStatusUpdateDto updateDto) throws NotFoundException, IllegalArgumentException;
 
+    /**
+     * 管理员：批量更新订单项状态（例如：整批发货、批量退款）
+     * 单个订单项失败不影响其他订单项，结果中逐项报告
+     * @param updateDtos
+     * @return 每个订单项的处理结果 (与请求顺序一致)
+     * @throws IllegalArgumentException 请求为空或超过批量上限
+     */
+    AdminOrderItemBatchResultDto updateAdminItemStatuses(List<AdminOrderItemStatusUpdateDto> updateDtos) throws IllegalArgumentException;
+
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.rabbuy.ecommerce.service;
 
+import com.rabbuy.ecommerce.cache.OrderItemCountCache;
 import com.rabbuy.ecommerce.dao.*; // 导入所有 DAO
 import com.rabbuy.ecommerce.dto.*; // 导入所有 DTO
 import com.rabbuy.ecommerce.entity.*; // 导入所有 实体
@@ -11,7 +12,6 @@ import jakarta.ws.rs.NotFoundException;
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @ApplicationScoped
 public class OrderServiceImpl implements OrderService {
@@ -22,6 +22,11 @@ public class OrderServiceImpl implements OrderService {
     @Inject private UserDao userDao;
     @Inject private AddressDao addressDao;
     @Inject private CommentDao commentDao;
+    @Inject private InventoryService inventoryService;
+    @Inject private OrderItemCountCache orderItemCountCache;
+
+    // 批量更新订单项状态时单次请求的上限
+    private static final int MAX_ADMIN_BATCH_SIZE = 1000;
 
     // --- 创建订单 (核心事务) ---
     @Override
@@ -49,23 +54,33 @@ public class OrderServiceImpl implements OrderService {
         // 此时 Hibernate 会执行 insert 并生成 UUID，order.getOrderId() 将不再是 null
         orderDao.save(order);
 
-        // 3. (在事务中) 处理订单项和库存
-        for (int i = 0; i < createDto.getProducts().size(); i++) {
-            CartItem itemDto = createDto.getProducts().get(i);
-            String productId = itemDto.getId();
-            int count = itemDto.getCount();
+        // 3. (在事务中) 合并同一商品的数量，一次查询加载所有商品 (仅用于校验和生成快照)
+        Map<String, Integer> quantities = new TreeMap<>(); // 按 ID 排序，保证并发下单时加锁顺序一致
+        for (CartItem itemDto : createDto.getProducts()) {
+            quantities.merge(itemDto.getId(), itemDto.getCount(), Integer::sum);
+        }
 
-            Product product = productDao.findById(productId)
-                    .orElseThrow(() -> new NotFoundException("Product not found: " + productId));
+        Map<String, Product> products = new HashMap<>();
+        for (Product product : productDao.findByIds(quantities.keySet())) {
+            products.put(product.getProductId(), product);
+        }
 
-            // 检查库存
-            if (product.getStockQuantity() < count) {
+        // 4. 整单预检 (无锁读取，库存明显不足时尽早失败)
+        for (Map.Entry<String, Integer> entry : quantities.entrySet()) {
+            Product product = products.get(entry.getKey());
+            if (product == null) {
+                throw new NotFoundException("Product not found: " + entry.getKey());
+            }
+            if (product.getStockQuantity() < entry.getValue()) {
                 throw new IllegalStateException(product.getProductName() + " is understock");
             }
+        }
 
-            // 减少库存
-            product.setStockQuantity(product.getStockQuantity() - count);
-            productDao.update(product); // 持久化库存变更
+        // 5. 创建订单项
+        OffsetDateTime createdTime = OffsetDateTime.now();
+        for (int i = 0; i < createDto.getProducts().size(); i++) {
+            CartItem itemDto = createDto.getProducts().get(i);
+            Product product = products.get(itemDto.getId());
 
             // 创建商品快照
             ProductSnapshot snapshot = new ProductSnapshot(
@@ -73,7 +88,7 @@ public class OrderServiceImpl implements OrderService {
                     product.getProductName(),
                     product.getPrice(),
                     (product.getImages() != null && !product.getImages().isEmpty()) ? product.getImages().get(0) : null,
-                    count
+                    itemDto.getCount()
             );
 
             // 创建 OrderItem
@@ -81,17 +96,27 @@ public class OrderServiceImpl implements OrderService {
             // --- 修复点 2：现在可以使用 orderId 了 ---
             orderItem.setItemId(order.getOrderId() + "-" + i);
             orderItem.setProduct(snapshot);
-            orderItem.setItemStatus("0");
+            orderItem.setItemStatus(OrderItemStatus.UNPAID);
+            orderItem.setCreatedTime(createdTime); // 显式设置，汇总字段需要在持久化之前计算
 
             order.addItem(orderItem); // 添加到 Order 的集合中
         }
+        order.refreshSummary();
 
-        // 4. 更新 Order (保存级联的 OrderItems)
+        // 6. 更新 Order (保存级联的 OrderItems)
         // 因为 Order 已经是 Managed 状态，且方法有 @Transactional，其实不需要显式调用 update 也会提交。
         // 但为了代码清晰，我们可以显式更新。
         orderDao.update(order);
 
-        // 5. 返回 DTO
+        // 7. 原子条件扣减库存 (放在事务最后，缩短热点行锁的持有时间)
+        // 任一商品扣减失败则抛出异常，整个事务 (包括已扣减的库存) 回滚
+        inventoryService.reserve(quantities).ifPresent(productId -> {
+            throw new IllegalStateException(products.get(productId).getProductName() + " is understock");
+        });
+
+        orderItemCountCache.invalidate(user.getId());
+
+        // 8. 返回 DTO
         return new OrderCreatedDto(
                 order.getOrderId(),
                 order.getDeliveryTime(),
@@ -104,66 +129,10 @@ public class OrderServiceImpl implements OrderService {
     // --- 获取订单详情 ---
     @Override
     public OrderDetailResponseDto getOrderDetails(String orderId) throws NotFoundException {
-        //
-        Order order = orderDao.findOrderWithItems(orderId)
+        // 只读路径：两条投影查询 (订单头 / 订单项)，不加载实体
+        OrderDetailHeaderRow header = orderDao.findOrderDetailHeader(orderId)
                 .orElseThrow(() -> new NotFoundException("Order not found"));
-
-        BigDecimal totalAmount = BigDecimal.ZERO;
-        List<OrderItemResponseDto> itemDtos = new ArrayList<>();
-        OffsetDateTime createdTime = null; // (取第一个 item 的创建时间)
-
-        for (OrderItem item : order.getItems()) {
-            ProductSnapshot snapshot = item.getProduct();
-
-            // 计算总价
-            if (snapshot.getPrice() != null) {
-                totalAmount = totalAmount.add(snapshot.getPrice().multiply(new BigDecimal(snapshot.getCount())));
-            }
-
-            // 设置创建时间
-            if (createdTime == null) {
-                createdTime = item.getCreatedTime();
-            }
-
-            itemDtos.add(new OrderItemResponseDto(
-                    snapshot.getId(),
-                    snapshot.getName(),
-                    snapshot.getPrice(),
-                    snapshot.getImage(),
-                    snapshot.getCount(),
-                    item.getItemId(),
-                    item.getItemStatus(),
-                    item.getUpdatedTime()
-            ));
-        }
-
-        AddressDto addressDto = null;
-        if (order.getAddress() != null) {
-            addressDto = new AddressDto(
-                    order.getAddress().getAddressId(),
-                    order.getAddress().getAddressTag(),
-                    order.getAddress().getRecipientName(),
-                    order.getAddress().getPhone(),
-                    order.getAddress().getProvince(),
-                    order.getAddress().getCity(),
-                    order.getAddress().getDistrict(),
-                    order.getAddress().getAdditionalAddress(),
-                    order.getAddress().getPostalCode(),
-                    order.getAddress().isDefault()
-            );
-        }
-
-        return new OrderDetailResponseDto(
-                order.getOrderId(),
-                order.getDeliveryTime(),
-                itemDtos,
-                order.getOrderStatus(),
-                totalAmount,
-                createdTime,
-                order.getUser().getId(),
-                order.getUser().getUsername(),
-                addressDto
-        );
+        return OrderDetailResponseDto.fromRows(header, orderDao.findOrderItemRows(orderId));
     }
 
     // --- 更新订单状态 ---
@@ -186,19 +155,22 @@ public class OrderServiceImpl implements OrderService {
             order.setOrderStatus(updateDto.orderStatus());
 
             // 级联更新 OrderItems 状态
-            String newItemStatus = updateDto.orderStatus();
-            if ("1".equals(newItemStatus) || "2".equals(newItemStatus)) {
+            OrderItemStatus newItemStatus = OrderItemStatus.fromText(updateDto.orderStatus());
+            if (newItemStatus == OrderItemStatus.PENDING_SHIPMENT || newItemStatus == OrderItemStatus.CANCELED) {
                 for (OrderItem item : order.getItems()) {
                     item.setItemStatus(newItemStatus);
                     // item.setUpdatedTime(OffsetDateTime.now()); // PreUpdate 会自动处理
                 }
+                order.refreshSummary();
             }
         }
 
         Order updatedOrder = orderDao.update(order); // Merge 更改
+        orderDao.flush(); // 订单项的 updatedTime 由 @PreUpdate 在写入时设置，构建响应前先写入
+        orderItemCountCache.invalidate(order.getUser().getId());
 
-        // 返回更新后的详情
-        return getOrderDetails(updatedOrder.getOrderId());
+        // 直接从已加载的实体构建详情，不再重新查询
+        return OrderDetailResponseDto.fromEntity(updatedOrder);
     }
 
     // --- 客户更新订单项状态 ---
@@ -206,17 +178,10 @@ public class OrderServiceImpl implements OrderService {
     @Transactional
     public OrderItem updateCustomerItemStatus(OrderItemStatusUpdateDto updateDto) throws NotFoundException, IllegalArgumentException {
         //
-        // 1. 验证状态转换
-        Map<String, List<String>> validTransitions = Map.of(
-                "1", List.of("6"), // 待发货 -> 申请退款
-                "9", List.of("6"), // 待付款 -> 申请退款 (原文如此)
-                "3", List.of("6"), // 待收货 -> 申请退款
-                "4", List.of("5", "6"), // 已发货 -> 确认收货 / 申请退款
-                "5", List.of("6")  // 已收货 -> 申请退款
-        );
-
-        if (!validTransitions.containsKey(updateDto.oldStatus()) ||
-                !validTransitions.get(updateDto.oldStatus()).contains(updateDto.newStatus())) {
+        // 1. 验证状态转换 (转换表见 OrderItemStatus)
+        OrderItemStatus oldStatus = OrderItemStatus.fromText(updateDto.oldStatus());
+        OrderItemStatus newStatus = OrderItemStatus.fromText(updateDto.newStatus());
+        if (oldStatus == null || newStatus == null || !oldStatus.canCustomerChangeTo(newStatus)) {
             throw new IllegalArgumentException("Invalid status transformation");
         }
 
@@ -224,12 +189,14 @@ public class OrderServiceImpl implements OrderService {
         OrderItem item = orderItemDao.findById(updateDto.itemId())
                 .orElseThrow(() -> new NotFoundException("Order item not found"));
 
-        if (!item.getItemStatus().equals(updateDto.oldStatus())) {
+        if (item.getItemStatus() != oldStatus) {
             throw new IllegalArgumentException("Item status does not match oldStatus");
         }
 
-        item.setItemStatus(updateDto.newStatus());
+        item.setItemStatus(newStatus);
         // PreUpdate 会自动设置 updated_time
+        item.getOrder().refreshSummary();
+        orderItemCountCache.invalidate(item.getOrder().getUser().getId());
 
         return orderItemDao.update(item); // 返回更新后的实体
     }
@@ -238,94 +205,83 @@ public class OrderServiceImpl implements OrderService {
     @Override
     public PaginatedResult<OrderListDto> getOrdersByUserId(String userId, String itemStatus, int page, int pageSize) {
         //
-
-        // 1. 获取相关 Order IDs
-        List<String> orderIds;
+        OrderItemStatus statusFilter = null;
         if (itemStatus != null && !itemStatus.isEmpty() && !"all".equals(itemStatus) && !"undefined".equals(itemStatus)) {
-            orderIds = orderDao.findOrderIdsByUserIdAndItemStatus(userId, itemStatus);
-        } else {
-            orderIds = orderDao.findOrderIdsByUserId(userId);
+            statusFilter = OrderItemStatus.fromText(itemStatus);
+            if (statusFilter == null) {
+                return new PaginatedResult<>(new ArrayList<>(), 0, page, 0); // 未知状态不会匹配任何订单
+            }
         }
 
-        if (orderIds.isEmpty()) {
+        // 1. 在数据库中计数
+        long totalItems = orderDao.countOrdersByUserId(userId, statusFilter);
+        if (totalItems == 0) {
             return new PaginatedResult<>(new ArrayList<>(), 0, page, 0);
         }
+        int totalPages = (int) Math.ceil((double) totalItems / pageSize);
 
-        // 2. 批量获取所有相关的 Orders 及其 Items
-        List<Order> orders = orderDao.findOrdersWithItemsByOrderIds(orderIds);
-
-        // 3. 在内存中分组、排序
-        Map<String, OrderListDto> orderMap = new HashMap<>();
-
-        for (Order order : orders) {
-            BigDecimal totalAmount = BigDecimal.ZERO;
-            OffsetDateTime latestTime = null;
-            int maxStatus = -1;
-            List<OrderItemListDto> itemDtos = new ArrayList<>();
+        // 2. 在数据库中排序、分页，只取当前页的 Order IDs
+        List<String> pageOrderIds = orderDao.findOrderIdsPageByUserId(userId, statusFilter, page, pageSize);
 
-            for (OrderItem item : order.getItems()) {
-                ProductSnapshot snapshot = item.getProduct();
-                if (snapshot == null) continue; // 安全检查
+        // 3. 只为当前页的订单加载 Items
+        return new PaginatedResult<>(toOrderListDtos(pageOrderIds), totalItems, page, totalPages);
+    }
 
-                // 计算总价
-                if (snapshot.getPrice() != null) {
-                    totalAmount = totalAmount.add(snapshot.getPrice().multiply(new BigDecimal(snapshot.getCount())));
-                }
+    /**
+     * 批量加载指定订单及其 Items，并按传入 ID 的顺序转换为列表 DTO
+     */
+    private List<OrderListDto> toOrderListDtos(List<String> orderIds) {
+        if (orderIds.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-                // 查找最新时间和最高状态
-                if (latestTime == null || item.getCreatedTime().isAfter(latestTime)) {
-                    latestTime = item.getCreatedTime();
-                }
-                try {
-                    int statusNum = Integer.parseInt(item.getItemStatus());
-                    if (statusNum > maxStatus) {
-                        maxStatus = statusNum;
-                    }
-                } catch (NumberFormatException e) { /* 忽略无效状态 */ }
-
-                // 转换 Item DTO
-                itemDtos.add(new OrderItemListDto(
-                        item.getItemId(),
-                        snapshot.getId(),
-                        item.getItemStatus(),
-                        snapshot.getName(),
-                        snapshot.getImage(),
-                        item.getCreatedTime(),
-                        item.getUpdatedTime(),
-                        snapshot.getPrice(),
-                        snapshot.getCount()
-                ));
-            }
+        Map<String, Order> orderMap = new HashMap<>();
+        for (Order order : orderDao.findOrdersWithItemsByOrderIds(orderIds)) {
+            orderMap.put(order.getOrderId(), order);
+        }
 
-            if (latestTime == null && !order.getItems().isEmpty()) {
-                latestTime = order.getItems().get(0).getCreatedTime(); // 备用
+        List<OrderListDto> result = new ArrayList<>(orderIds.size());
+        for (String orderId : orderIds) {
+            Order order = orderMap.get(orderId);
+            if (order != null) {
+                result.add(toOrderListDto(order));
             }
-
-            OrderListDto orderListDto = new OrderListDto(
-                    order.getOrderId().toString(),
-                    latestTime,
-                    String.valueOf(maxStatus),
-                    totalAmount,
-                    0, // PostFee (原文写死 0)
-                    itemDtos
-            );
-            orderMap.put(order.getOrderId(), orderListDto);
         }
+        return result;
+    }
 
-        // 4. 排序 (按最新时间降序)
-        List<OrderListDto> sortedOrders = orderMap.values().stream()
-                .sorted(Comparator.comparing(OrderListDto::createdTime, Comparator.nullsLast(Comparator.reverseOrder())))
-                .collect(Collectors.toList());
+    private OrderListDto toOrderListDto(Order order) {
+        if (order.getLatestItemTime() == null) {
+            order.refreshSummary(); // 旧数据尚未回填汇总字段，仅在内存中计算
+        }
 
-        // 5. 内存中分页
-        int totalItems = sortedOrders.size();
-        int totalPages = (int) Math.ceil((double) totalItems / pageSize);
-        int start = (page - 1) * pageSize;
-        int end = Math.min(start + pageSize, totalItems);
+        List<OrderItemListDto> itemDtos = new ArrayList<>();
+        for (OrderItem item : order.getItems()) {
+            ProductSnapshot snapshot = item.getProduct();
+            if (snapshot == null) continue; // 安全检查
 
-        List<OrderListDto> paginatedData = (start < totalItems) ? sortedOrders.subList(start, end) : new ArrayList<>();
+            // 转换 Item DTO
+            itemDtos.add(new OrderItemListDto(
+                    item.getItemId(),
+                    snapshot.getId(),
+                    item.getItemStatus().text(),
+                    snapshot.getName(),
+                    snapshot.getImage(),
+                    item.getCreatedTime(),
+                    item.getUpdatedTime(),
+                    snapshot.getPrice(),
+                    snapshot.getCount()
+            ));
+        }
 
-        return new PaginatedResult<>(paginatedData, totalItems, page, totalPages);
+        return new OrderListDto(
+                order.getOrderId(),
+                order.getLatestItemTime(),   // (最新 item 的时间)
+                order.getAggregateStatus() != null ? order.getAggregateStatus().text() : "-1",  // (最高的 item 状态)
+                order.getTotalAmount(),
+                0, // PostFee (原文写死 0)
+                itemDtos
+        );
     }
 
     // --- 其他方法 ---
@@ -348,8 +304,9 @@ public class OrderServiceImpl implements OrderService {
     @Override
     public OrderNotificationCountDto getNotificationCount(String userId) {
         //
-        long count = orderItemDao.countUnreadByUserId(userId);
-        return new OrderNotificationCountDto(count);
+        // 与首页角标共用同一条 GROUP BY 查询和缓存
+        OrderItemStatusCounts counts = orderItemCountCache.get(userId, orderItemDao::countStatusesByUserId);
+        return new OrderNotificationCountDto(counts.unread());
     }
 
     @Override
@@ -357,16 +314,20 @@ public class OrderServiceImpl implements OrderService {
     public void markNotificationsAsRead(String userId) {
         //
         orderItemDao.markAllAsReadByUserId(userId);
+        orderItemCountCache.invalidate(userId);
     }
 
     @Override
     public HomeMessageCountDto getMessageCountsByUserId(String userId) {
-        long unpaid = orderItemDao.countByUserIdAndItemStatus(userId, "0");
-        long pending = orderItemDao.countByUserIdAndItemStatus(userId, "1");
-        long review = orderItemDao.countByUserIdAndItemStatus(userId, "5");
-        long refunding = orderItemDao.countByUserIdAndItemStatus(userId, "6");
-
-        return new HomeMessageCountDto(unpaid, pending, review, refunding);
+        // 一条 GROUP BY 查询得到所有状态的计数，重复访问直接命中缓存
+        OrderItemStatusCounts counts = orderItemCountCache.get(userId, orderItemDao::countStatusesByUserId);
+
+        return new HomeMessageCountDto(
+                counts.count(OrderItemStatus.UNPAID),
+                counts.count(OrderItemStatus.PENDING_SHIPMENT),
+                counts.count(OrderItemStatus.RECEIVED),   // 待评价
+                counts.count(OrderItemStatus.REFUNDING)
+        );
     }
 
     /**
@@ -380,80 +341,26 @@ public class OrderServiceImpl implements OrderService {
     public PaginatedResult<OrderListDto> getAdminOrdersList(String itemStatus, int page, int pageSize) {
         // Django 的 `get_all_orders_view` 与 `get_orders_view`
         // 唯一的区别是它查询所有用户。
-
-        // 1. 获取相关 Order IDs (不限制 userId)
-        List<String> orderIds;
+        OrderItemStatus statusFilter = null;
         if (itemStatus != null && !itemStatus.isEmpty() && !"all".equals(itemStatus) && !"undefined".equals(itemStatus)) {
-            orderIds = orderDao.findOrderIdsByItemStatus(itemStatus);
-        } else {
-            orderIds = orderDao.findAllOrderIds();
+            statusFilter = OrderItemStatus.fromText(itemStatus);
+            if (statusFilter == null) {
+                return new PaginatedResult<>(new ArrayList<>(), 0, page, 0); // 未知状态不会匹配任何订单
+            }
         }
 
-        if (orderIds.isEmpty()) {
+        // 1. 在数据库中计数 (不限制 userId)
+        long totalItems = orderDao.countOrders(statusFilter);
+        if (totalItems == 0) {
             return new PaginatedResult<>(new ArrayList<>(), 0, page, 0);
         }
-
-        // 2. 批量获取所有相关的 Orders 及其 Items
-        List<Order> orders = orderDao.findOrdersWithItemsByOrderIds(orderIds);
-
-        // 3. 在内存中分组、排序 (与 getOrdersByUserId 的逻辑相同)
-        Map<String, OrderListDto> orderMap = new HashMap<>();
-
-        for (Order order : orders) {
-            BigDecimal totalAmount = BigDecimal.ZERO;
-            OffsetDateTime latestTime = null;
-            int maxStatus = -1;
-            List<OrderItemListDto> itemDtos = new ArrayList<>();
-
-            for (OrderItem item : order.getItems()) {
-                ProductSnapshot snapshot = item.getProduct();
-                if (snapshot == null) continue;
-
-                if (snapshot.getPrice() != null) {
-                    totalAmount = totalAmount.add(snapshot.getPrice().multiply(new BigDecimal(snapshot.getCount())));
-                }
-                if (latestTime == null || item.getCreatedTime().isAfter(latestTime)) {
-                    latestTime = item.getCreatedTime();
-                }
-                try {
-                    int statusNum = Integer.parseInt(item.getItemStatus());
-                    if (statusNum > maxStatus) {
-                        maxStatus = statusNum;
-                    }
-                } catch (NumberFormatException e) { /* 忽略 */ }
-
-                itemDtos.add(new OrderItemListDto(
-                        item.getItemId(), snapshot.getId(), item.getItemStatus(),
-                        snapshot.getName(), snapshot.getImage(),
-                        item.getCreatedTime(), item.getUpdatedTime(),
-                        snapshot.getPrice(), snapshot.getCount()
-                ));
-            }
-            if (latestTime == null && !order.getItems().isEmpty()) {
-                latestTime = order.getItems().get(0).getCreatedTime();
-            }
-
-            OrderListDto orderListDto = new OrderListDto(
-                    order.getOrderId().toString(), latestTime,
-                    String.valueOf(maxStatus), totalAmount, 0, itemDtos
-            );
-            orderMap.put(order.getOrderId(), orderListDto);
-        }
-
-        // 4. 排序 (按最新时间降序)
-        List<OrderListDto> sortedOrders = orderMap.values().stream()
-                .sorted(Comparator.comparing(OrderListDto::createdTime, Comparator.nullsLast(Comparator.reverseOrder())))
-                .collect(Collectors.toList());
-
-        // 5. 内存中分页
-        int totalItems = sortedOrders.size();
         int totalPages = (int) Math.ceil((double) totalItems / pageSize);
-        int start = (page - 1) * pageSize;
-        int end = Math.min(start + pageSize, totalItems);
 
-        List<OrderListDto> paginatedData = (start < totalItems) ? sortedOrders.subList(start, end) : new ArrayList<>();
+        // 2. 在数据库中排序、分页，内存占用只与 pageSize 有关
+        List<String> pageOrderIds = orderDao.findOrderIdsPage(statusFilter, page, pageSize);
 
-        return new PaginatedResult<>(paginatedData, totalItems, page, totalPages);
+        // 3. 只为当前页的订单加载 Items (与 getOrdersByUserId 的逻辑相同)
+        return new PaginatedResult<>(toOrderListDtos(pageOrderIds), totalItems, page, totalPages);
     }
 
     /**
@@ -481,32 +388,115 @@ public class OrderServiceImpl implements OrderService {
         OrderItem item = orderItemDao.findById(updateDto.itemId())
                 .orElseThrow(() -> new NotFoundException("Order item not found"));
 
-        String newStatus = updateDto.status();
+        // 2. 验证并更新状态，退款结束时原子恢复库存
+        int restock = applyAdminStatus(item, updateDto.status());
+        if (restock > 0) {
+            inventoryService.release(item.getProduct().getId(), restock);
+        }
 
-        // 2. 验证状态
-        if (newStatus == null || newStatus.trim().isEmpty()) {
-            throw new IllegalArgumentException("New status is required");
+        // 3. 刷新订单汇总
+        item.getOrder().refreshSummary();
+        orderItemCountCache.invalidate(item.getOrder().getUser().getId());
+
+        // 4. 持久化 (PreUpdate 会自动更新时间)
+        return orderItemDao.update(item);
+    }
+
+    /**
+     * 管理员：批量更新订单项状态
+     * 订单项、订单一次性加载，库存按商品汇总后恢复，状态变更在事务提交时批量写入
+     */
+    @Override
+    @Transactional
+    public AdminOrderItemBatchResultDto updateAdminItemStatuses(List<AdminOrderItemStatusUpdateDto> updateDtos) throws IllegalArgumentException {
+        if (updateDtos == null || updateDtos.isEmpty()) {
+            throw new IllegalArgumentException("Item list is empty");
+        }
+        if (updateDtos.size() > MAX_ADMIN_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_ADMIN_BATCH_SIZE + " items per request");
         }
 
-        // 3. 业务逻辑 (退款时恢复库存)
-        //
-        if (("7".equals(newStatus) || "10".equals(newStatus)) && "6".equals(item.getItemStatus())) {
-            // "7" = 已退款, "10" = 已拒绝, "6" = 退款中
-            Product product = productDao.findById(item.getProduct().getId())
-                    .orElse(null); // 产品可能已被删除
-
-            if (product != null) {
-                // 退款成功 (7) 或 拒绝退款 (10)，恢复库存
-                int count = item.getProduct().getCount();
-                product.setStockQuantity(product.getStockQuantity() + count);
-                productDao.update(product);
+        // 1. 一条 IN 查询加载所有订单项 (含订单和用户)
+        Set<String> itemIds = new HashSet<>();
+        for (AdminOrderItemStatusUpdateDto dto : updateDtos) {
+            if (dto != null && dto.itemId() != null) {
+                itemIds.add(dto.itemId());
             }
         }
+        Map<String, OrderItem> items = new HashMap<>();
+        for (OrderItem item : orderItemDao.findByIds(itemIds)) {
+            items.put(item.getItemId(), item);
+        }
 
-        // 4. 更新状态
-        item.setItemStatus(newStatus);
+        // 2. 预加载涉及订单的全部订单项，refreshSummary 时不再逐单懒加载
+        Set<String> orderIds = new HashSet<>();
+        for (OrderItem item : items.values()) {
+            orderIds.add(item.getOrder().getOrderId());
+        }
+        orderDao.findOrdersWithItemsByOrderIds(new ArrayList<>(orderIds));
+
+        // 3. 逐项校验并更新 (同一订单项出现多次时按请求顺序依次生效)
+        Map<String, Integer> restock = new TreeMap<>(); // 按 ID 顺序更新，减少死锁
+        Map<String, Order> touchedOrders = new HashMap<>();
+        Set<String> touchedUsers = new HashSet<>();
+        List<AdminOrderItemBatchResultDto.ItemResult> results = new ArrayList<>(updateDtos.size());
+        int succeeded = 0;
+
+        for (AdminOrderItemStatusUpdateDto dto : updateDtos) {
+            String itemId = dto != null ? dto.itemId() : null;
+            OrderItem item = itemId != null ? items.get(itemId) : null;
+            if (item == null) {
+                results.add(new AdminOrderItemBatchResultDto.ItemResult(itemId, false, null, "Order item not found"));
+                continue;
+            }
 
-        // 5. 持久化 (PreUpdate 会自动更新时间)
-        return orderItemDao.update(item);
+            // 托管实体，提交时由 JDBC batch 写入；需要恢复的库存汇总到商品上统一处理
+            int released;
+            try {
+                released = applyAdminStatus(item, dto.status());
+            } catch (IllegalArgumentException e) {
+                results.add(new AdminOrderItemBatchResultDto.ItemResult(
+                        itemId, false, item.getItemStatus().text(), e.getMessage()));
+                continue;
+            }
+            if (released > 0) {
+                restock.merge(item.getProduct().getId(), released, Integer::sum);
+            }
+
+            touchedOrders.put(item.getOrder().getOrderId(), item.getOrder());
+            touchedUsers.add(item.getOrder().getUser().getId());
+            results.add(new AdminOrderItemBatchResultDto.ItemResult(itemId, true, item.getItemStatus().text(), null));
+            succeeded++;
+        }
+
+        // 4. 每个订单只刷新一次汇总，每个商品只执行一条库存 UPDATE
+        for (Order order : touchedOrders.values()) {
+            order.refreshSummary();
+        }
+        inventoryService.releaseAll(restock);
+        touchedUsers.forEach(orderItemCountCache::invalidate);
+
+        return new AdminOrderItemBatchResultDto(succeeded, results.size() - succeeded, results);
+    }
+
+    /**
+     * 管理员修改订单项状态 (单个与批量共用)：校验目标状态后修改托管实体
+     * 从退款中变为退款成功 (7) 或拒绝退款 (10) 时返回需要恢复的库存数量，由调用方恢复；其他情况返回 0
+     *
+     * @throws IllegalArgumentException 状态为空、无法识别或不允许从当前状态修改
+     */
+    private int applyAdminStatus(OrderItem item, String status) throws IllegalArgumentException {
+        if (status == null || status.trim().isEmpty()) {
+            throw new IllegalArgumentException("New status is required");
+        }
+        OrderItemStatus newStatus = OrderItemStatus.fromText(status.trim());
+        if (newStatus == null || !item.getItemStatus().canAdminChangeTo(newStatus)) {
+            throw new IllegalArgumentException("Invalid status: " + status);
+        }
+
+        boolean refundClosed = (newStatus == OrderItemStatus.REFUNDED || newStatus == OrderItemStatus.REFUND_REJECTED)
+                && item.getItemStatus() == OrderItemStatus.REFUNDING;
+        item.setItemStatus(newStatus);
+        return refundClosed ? item.getProduct().getCount() : 0;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,30 @@
+package com.rabbuy.ecommerce.service;
+
+import com.rabbuy.ecommerce.dto.ProductListRow;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 随机抽取子分类下的在售商品 (首页、推荐分类、分类详情页)
+ * 每个子分类只在内存中保存在售商品 ID 数组，抽样后只按主键查询被抽中商品的列表字段
+ */
+public interface ProductSamplingService {
+
+    /**
+     * 从一个子分类中随机抽取最多 k 个不重复的在售商品
+     */
+    List<ProductListRow> sampleActiveBySubCategory(String subCategoryId, int k);
+
+    /**
+     * 从多个子分类中各随机抽取最多 k 个商品，所有被抽中的商品用一条 IN 查询加载
+     * @return 子分类 ID -> 抽中的商品 (随机顺序)
+     */
+    Map<String, List<ProductListRow>> sampleActiveBySubCategories(Collection<String> subCategoryIds, int k);
+
+    /**
+     * 子分类下的商品集合发生变化 (新增、上下架、删除、更换子分类) 后调用
+     */
+    void invalidate(String subCategoryId);
+}
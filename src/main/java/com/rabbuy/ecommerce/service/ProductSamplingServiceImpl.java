@@ -0,0 +1,123 @@
+package com.rabbuy.ecommerce.service;
+
+import com.rabbuy.ecommerce.cache.TransactionCallbacks;
+import com.rabbuy.ecommerce.dao.ProductDao;
+import com.rabbuy.ecommerce.dto.ProductListRow;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+@ApplicationScoped
+public class ProductSamplingServiceImpl implements ProductSamplingService {
+
+    // 写操作会主动失效；TTL 兜底其他实例上的修改
+    private static final long ID_POOL_TTL_MILLIS = 5 * 60_000;
+
+    @Inject
+    private ProductDao productDao;
+
+    @Inject
+    private TransactionCallbacks transactionCallbacks;
+
+    // 子分类 ID -> 在售商品 ID 数组 (只读，刷新时整体替换)
+    private final ConcurrentHashMap<String, IdPool> pools = new ConcurrentHashMap<>();
+
+    // 每次失效加 1：加载期间发生过失效时，加载结果可能是旧数据，不保留
+    private final AtomicLong generation = new AtomicLong();
+
+    private record IdPool(String[] ids, long expiresAt) {
+    }
+
+    @Override
+    public List<ProductListRow> sampleActiveBySubCategory(String subCategoryId, int k) {
+        return sampleActiveBySubCategories(List.of(subCategoryId), k).getOrDefault(subCategoryId, new ArrayList<>());
+    }
+
+    @Override
+    public Map<String, List<ProductListRow>> sampleActiveBySubCategories(Collection<String> subCategoryIds, int k) {
+        // 1. 每个子分类抽取 k 个 ID (只访问内存)
+        Map<String, List<String>> drawn = new LinkedHashMap<>();
+        List<String> allIds = new ArrayList<>();
+        for (String subCategoryId : subCategoryIds) {
+            List<String> ids = draw(idsOf(subCategoryId), k);
+            drawn.put(subCategoryId, ids);
+            allIds.addAll(ids);
+        }
+
+        // 2. 一条 IN 查询加载所有被抽中的商品 (期间被下架的商品不会返回)
+        Map<String, ProductListRow> productMap = new HashMap<>();
+        for (ProductListRow row : productDao.findActiveListRowsByIds(allIds)) {
+            productMap.put(row.productId(), row);
+        }
+
+        // 3. 按抽样顺序组装
+        Map<String, List<ProductListRow>> result = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : drawn.entrySet()) {
+            List<ProductListRow> products = new ArrayList<>(entry.getValue().size());
+            for (String productId : entry.getValue()) {
+                ProductListRow product = productMap.get(productId);
+                if (product != null) {
+                    products.add(product);
+                }
+            }
+            result.put(entry.getKey(), products);
+        }
+        return result;
+    }
+
+    @Override
+    public void invalidate(String subCategoryId) {
+        if (subCategoryId == null) {
+            return;
+        }
+        transactionCallbacks.evictNowAndAfterCompletion(() -> evict(subCategoryId));
+    }
+
+    private void evict(String subCategoryId) {
+        generation.incrementAndGet();
+        pools.remove(subCategoryId);
+    }
+
+    private String[] idsOf(String subCategoryId) {
+        long now = System.currentTimeMillis();
+        IdPool pool = pools.get(subCategoryId);
+        if (pool == null || pool.expiresAt() <= now) {
+            long loadedAt = generation.get();
+            pool = new IdPool(productDao.findActiveIdsBySubCategory(subCategoryId).toArray(new String[0]), now + ID_POOL_TTL_MILLIS);
+            pools.put(subCategoryId, pool);
+            if (generation.get() != loadedAt) {
+                // 加载期间发生了失效：本次仍使用加载结果，但不缓存，下次重新加载
+                pools.remove(subCategoryId, pool);
+            }
+        }
+        return pool.ids();
+    }
+
+    /**
+     * 部分 Fisher–Yates 洗牌：只执行前 k 次交换，交换记录保存在稀疏 Map 中，不复制整个数组
+     * 时间和空间都是 O(k)，与子分类中的商品数量无关
+     */
+    static List<String> draw(String[] ids, int k) {
+        int n = ids.length;
+        int count = Math.min(k, n);
+        List<String> result = new ArrayList<>(count);
+        Map<Integer, Integer> swapped = new HashMap<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < count; i++) {
+            int j = random.nextInt(i, n);
+            int picked = swapped.getOrDefault(j, j);
+            swapped.put(j, swapped.getOrDefault(i, i));
+            result.add(ids[picked]);
+        }
+        return result;
+    }
+}
@@ -9,12 +9,19 @@ public interface ProductService {
     ProductDetailDto getProductDetails(String productId) throws NotFoundException;
     List<ProductListDto> getLatestProducts(int limit);
     List<ProductListDto> getHotProducts(int limit);
-    PaginatedResult<ProductListDto> searchProducts(ProductSearchCriteria criteria);
+    FacetedResult<ProductListDto> searchProducts(ProductSearchCriteria criteria);
     List<ProductListDto> getProductRecommendations(String productId, String name, int limit);
     ProductStatusDto getProductStatus(String productId) throws NotFoundException;
 
     ProductStockStatus getProductStockStatus();
     PaginatedResult<ProductAdminListDto> getAdminProductList(String query, int page, int pageSize);
+
+    /**
+     * 管理员商品列表的游标分页
+     * @param cursor 上一页返回的 nextCursor；null 表示第一页
+     * @param withTotal 是否需要总数 (需要额外一条 COUNT 查询)
+     */
+    CursorResult<ProductAdminListDto> getAdminProductListByCursor(String query, String cursor, int pageSize, boolean withTotal);
     ProductDetailDto getAdminProductDetails(String productId) throws NotFoundException;
     ProductDetailDto addProduct(ProductAdminInputDto dto) throws NotFoundException, IllegalArgumentException;
     ProductDetailDto updateProduct(String productId, ProductAdminInputDto dto) throws NotFoundException, IllegalArgumentException;
@@ -1,20 +1,30 @@
 package com.rabbuy.ecommerce.service;
 
-import com.rabbuy.ecommerce.dao.CategoryDao;
+import com.rabbuy.ecommerce.cache.CategoryTree;
+import com.rabbuy.ecommerce.cache.ProductSummaryCache;
+import com.rabbuy.ecommerce.cache.ResponseCache;
 import com.rabbuy.ecommerce.dao.ProductDao;
 import com.rabbuy.ecommerce.dao.SubCategoryDao;
 import com.rabbuy.ecommerce.dto.*;
-import com.rabbuy.ecommerce.entity.Category;
 import com.rabbuy.ecommerce.entity.Product;
 import com.rabbuy.ecommerce.entity.SubCategory;
+import com.rabbuy.ecommerce.search.ProductSearchHits;
+import com.rabbuy.ecommerce.search.ProductRecommendationIndex;
+import com.rabbuy.ecommerce.search.ProductSearchIndex;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.NotFoundException;
 
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @ApplicationScoped
@@ -27,7 +37,28 @@ public class ProductServiceImpl implements ProductService {
     private SubCategoryDao subCategoryDao;
 
     @Inject
-    private CategoryDao categoryDao;
+    private InventoryService inventoryService;
+
+    @Inject
+    private ProductSearchIndex productSearchIndex;
+
+    @Inject
+    private ProductRecommendationIndex productRecommendationIndex;
+
+    @Inject
+    private ProductSamplingService productSamplingService;
+
+    @Inject
+    private HomeFeedService homeFeedService;
+
+    @Inject
+    private ResponseCache responseCache;
+
+    @Inject // 购物车使用的商品摘要
+    private ProductSummaryCache productSummaryCache;
+
+    @Inject
+    private CategoryTree categoryTree;
 
     @Override
     @Transactional
@@ -43,7 +74,7 @@ public class ProductServiceImpl implements ProductService {
     @Override
     public List<ProductListDto> getLatestProducts(int limit) {
         // DAO 方法已包含 status='1', is_deleted=False 和排序
-        return productDao.findLatestActiveProducts(limit).stream()
+        return productDao.findLatestActiveListRows(limit).stream()
                 .map(ProductListDto::fromHomeView) // 使用简化的 DTO
                 .collect(Collectors.toList());
     }
@@ -54,43 +85,65 @@ public class ProductServiceImpl implements ProductService {
     @Override
     public List<ProductListDto> getHotProducts(int limit) {
         // DAO 方法已包含 status='1', is_deleted=False 和评分过滤
-        return productDao.findHotActiveProducts(MIN_HOT_RATING, limit).stream()
+        return productDao.findHotActiveListRows(MIN_HOT_RATING, limit).stream()
                 .map(ProductListDto::fromHomeView) // 使用简化的 DTO
                 .collect(Collectors.toList());
     }
 
     @Override
-    public PaginatedResult<ProductListDto> searchProducts(ProductSearchCriteria criteria) {
-        // DAO 层已处理所有复杂的过滤、分类、价格和排序逻辑
-        PaginatedResult<Product> entityResult = productDao.findActiveByCriteria(criteria);
-
-        // 将实体列表转换为 DTO 列表
-        List<ProductListDto> dtoList = entityResult.data().stream()
-                .map(ProductListDto::fromEntity) // 使用完整的 DTO
-                .collect(Collectors.toList());
+    public FacetedResult<ProductListDto> searchProducts(ProductSearchCriteria criteria) {
+        // 1. 过滤、相关度打分、排序、分页和分面统计都在内存索引中完成，只得到当前页的 ID
+        ProductSearchHits hits = productSearchIndex.search(criteria);
+
+        // 2. 只为当前页查询列表字段，并按索引给出的顺序排列；描述直接取自索引
+        Map<String, ProductListRow> rowMap = new HashMap<>();
+        for (ProductListRow row : productDao.findActiveListRowsByIds(hits.productIds())) {
+            rowMap.put(row.productId(), row);
+        }
+        List<ProductListDto> dtoList = new ArrayList<>(hits.productIds().size());
+        for (ProductIndexRow indexRow : hits.rows()) {
+            ProductListRow row = rowMap.get(indexRow.productId());
+            if (row != null) {
+                dtoList.add(ProductListDto.fromRow(row, indexRow.productDesc())); // 使用完整的 DTO
+            }
+        }
 
-        // 返回 DTO 格式的分页结果
-        return new PaginatedResult<>(
-                dtoList,
-                entityResult.totalItems(),
-                entityResult.currentPage(),
-                entityResult.totalPages()
-        );
+        int totalPages = (int) Math.ceil((double) hits.totalItems() / criteria.pageSize());
+        return new FacetedResult<>(dtoList, hits.totalItems(), criteria.page(), totalPages, hits.facets(), hits.nextCursor());
     }
 
     @Override
     public List<ProductListDto> getProductRecommendations(String productId, String name, int limit) {
-        if (name == null || name.isEmpty()) {
-            return List.of(); //
+        // 1. 相似商品由推荐索引预先计算 (共同购买、分类、名称词项)，这里只是一次内存读取
+        //    name 参数保留以兼容原接口，不再参与计算
+        String[] similar = productRecommendationIndex.similarTo(productId);
+        if (similar.length == 0) {
+            return List.of();
         }
 
-        String keyword = name.split(" ")[0];
-
-        List<Product> products = productDao.findActiveRecommendations(keyword, productId, limit);
-
-        return products.stream()
-                .map(ProductListDto::fromEntity)
-                .collect(Collectors.toList());
+        // 2. 多取一些候选，跳过重建之后被下架的商品
+        List<String> candidateIds = Arrays.asList(similar).subList(0, Math.min(similar.length, limit * 2));
+        Map<String, ProductListRow> rowMap = new HashMap<>();
+        for (ProductListRow row : productDao.findActiveListRowsByIds(candidateIds)) {
+            rowMap.put(row.productId(), row);
+        }
+        // 描述取自搜索索引，不从数据库读取
+        Map<String, ProductIndexRow> indexRows = productSearchIndex.findRows(candidateIds);
+
+        // 3. 保持相似度顺序
+        List<ProductListDto> result = new ArrayList<>(limit);
+        for (String candidateId : candidateIds) {
+            ProductListRow row = rowMap.get(candidateId);
+            if (row == null) {
+                continue;
+            }
+            ProductIndexRow indexRow = indexRows.get(candidateId);
+            result.add(ProductListDto.fromRow(row, indexRow != null ? indexRow.productDesc() : null));
+            if (result.size() == limit) {
+                break;
+            }
+        }
+        return result;
     }
 
     @Override
@@ -125,6 +178,45 @@ public class ProductServiceImpl implements ProductService {
         );
     }
 
+    @Override
+    public CursorResult<ProductAdminListDto> getAdminProductListByCursor(String query, String cursor, int pageSize, boolean withTotal) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+
+        // 1. 解析游标 (上一页最后一条的 updated_time 和 product_id)
+        OffsetDateTime afterUpdatedTime = null;
+        String afterProductId = null;
+        if (cursor != null) {
+            String[] parts = PageCursor.decode(cursor, 2);
+            if (parts[0] == null || parts[1] == null) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            try {
+                afterUpdatedTime = OffsetDateTime.parse(parts[0]);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            afterProductId = parts[1];
+        }
+
+        // 2. 多取一条用于判断是否还有下一页
+        List<Product> products = productDao.findAdminByKeywordAfter(query, afterUpdatedTime, afterProductId, pageSize + 1);
+        String nextCursor = null;
+        if (products.size() > pageSize) {
+            products = products.subList(0, pageSize);
+            Product last = products.get(pageSize - 1);
+            nextCursor = PageCursor.encode(last.getUpdatedTime().toString(), last.getProductId());
+        }
+
+        List<ProductAdminListDto> dtoList = products.stream()
+                .map(ProductAdminListDto::fromEntity)
+                .collect(Collectors.toList());
+
+        Long totalItems = withTotal ? productDao.countAdminByKeyword(query) : null;
+        return new CursorResult<>(dtoList, totalItems, nextCursor);
+    }
+
     @Override
     public ProductDetailDto getAdminProductDetails(String productId) throws NotFoundException {
         //
@@ -176,6 +268,11 @@ public class ProductServiceImpl implements ProductService {
 
         // 5. 保存 (PrePersist 会设置 created_time)
         productDao.save(product);
+        productSearchIndex.upsertAfterCommit(product);
+        productRecommendationIndex.upsertAfterCommit(product);
+        productSamplingService.invalidate(subCategory.getSubCateId());
+        homeFeedService.invalidate();
+        responseCache.invalidatePrefix(ResponseCache.CATEGORY_ALL);
 
         return ProductDetailDto.fromEntity(product);
     }
@@ -198,6 +295,7 @@ public class ProductServiceImpl implements ProductService {
         }
 
         if (dto.lowStockThreshold() != null) product.setLowStockThreshold(dto.lowStockThreshold());
+        String oldSubCategoryId = product.getSubCategory().getSubCateId();
         if (dto.images() != null) product.setImages(dto.images());
         if (dto.status() != null) product.setStatus(dto.status());
 
@@ -225,6 +323,17 @@ public class ProductServiceImpl implements ProductService {
         // (在事务中，JPA 会自动保存更改，但显式调用 update 也无妨)
         productDao.update(product);
 
+        // 库存或上架状态可能已变化，清除包含库存数量的缓存
+        inventoryService.invalidate(productId);
+        productSearchIndex.upsertAfterCommit(product);
+        productRecommendationIndex.upsertAfterCommit(product);
+        // 上架状态或子分类可能已变化，刷新随机抽样用的 ID 数组
+        productSamplingService.invalidate(oldSubCategoryId);
+        productSamplingService.invalidate(product.getSubCategory().getSubCateId());
+        homeFeedService.invalidate();
+        responseCache.invalidate(ResponseCache.PRODUCT_DETAIL + productId);
+        responseCache.invalidatePrefix(ResponseCache.CATEGORY_ALL);
+
         return ProductDetailDto.fromEntity(product);
     }
 
@@ -237,13 +346,20 @@ public class ProductServiceImpl implements ProductService {
 
         // 逻辑删除
         productDao.logicalDelete(product); //
+        productSummaryCache.invalidate(productId);
+        productSearchIndex.removeAfterCommit(productId);
+        productRecommendationIndex.removeAfterCommit(productId);
+        productSamplingService.invalidate(product.getSubCategory().getSubCateId());
+        homeFeedService.invalidate();
+        responseCache.invalidate(ResponseCache.PRODUCT_DETAIL + productId);
+        responseCache.invalidatePrefix(ResponseCache.CATEGORY_ALL);
     }
 
     @Override
     public List<HomeProductResponseDto> getHomeProducts() {
 
-        // 1. 获取所有启用的子分类 (DAO 已包含父分类)
-        List<SubCategory> activeSubCategories = subCategoryDao.findAllActive();
+        // 1. 获取所有启用的子分类 (内存分类树，快照不可修改，复制后再洗牌)
+        List<CategoryTree.SubCategoryNode> activeSubCategories = new ArrayList<>(categoryTree.activeSubCategories());
         if (activeSubCategories.isEmpty()) {
             return new ArrayList<>();
         }
@@ -252,40 +368,41 @@ public class ProductServiceImpl implements ProductService {
         Collections.shuffle(activeSubCategories);
 
         // 3. 取前 2 个 (实现 Python 的 [:2])
-        List<SubCategory> randomSubCategories = activeSubCategories.stream().limit(2).collect(Collectors.toList());
+        List<CategoryTree.SubCategoryNode> randomSubCategories = activeSubCategories.stream().limit(2).collect(Collectors.toList());
 
         List<HomeProductResponseDto> responseData = new ArrayList<>();
 
-        // 4. 遍历这 2 个随机子分类
-        for (SubCategory subCategory : randomSubCategories) {
-
-            // 5. 获取该分类下的所有启用商品
-            List<Product> allProducts = productDao.findActiveBySubCategoryForRandom(subCategory.getSubCateId());
+        // 4. 每个子分类随机抽取 8 个商品 (实现 Python 的 order_by('?')[:8])，一条 IN 查询加载
+        Map<String, List<ProductListRow>> sampled = productSamplingService.sampleActiveBySubCategories(
+                randomSubCategories.stream().map(CategoryTree.SubCategoryNode::id).collect(Collectors.toList()), 8);
 
-            // 6. 再次洗牌 (实现 Python 的 order_by('?'))
-            Collections.shuffle(allProducts);
+        // 5. 遍历这 2 个随机子分类
+        for (CategoryTree.SubCategoryNode subCategory : randomSubCategories) {
+            CategoryTree.CategoryNode category = categoryTree.category(subCategory.categoryId()).orElse(null);
+            if (category == null) {
+                continue; // 父分类刚被删除
+            }
 
-            // 7. 取前 8 个 (实现 Python 的 [:8]) 并转换为 DTO
-            List<HomeProductGoodsDto> goodsList = allProducts.stream()
-                    .limit(8)
-                    .map(product -> new HomeProductGoodsDto(
-                            product.getProductId(),
-                            product.getProductName(),
-                            product.getPrice(),
-                            (product.getImages() != null && !product.getImages().isEmpty()) ? product.getImages().get(0) : null
+            // 6. 转换为 DTO
+            List<HomeProductGoodsDto> goodsList = sampled.get(subCategory.id()).stream()
+                    .map(row -> new HomeProductGoodsDto(
+                            row.productId(),
+                            row.productName(),
+                            row.price(),
+                            row.image()
                     ))
                     .collect(Collectors.toList());
 
-            // 8. 准备 Python 中的 "picture" 字段 (带回退URL)
-            String imageUrl = (subCategory.getSubCateImage() != null && !subCategory.getSubCateImage().isEmpty())
-                    ? subCategory.getSubCateImage()
+            // 7. 准备 Python 中的 "picture" 字段 (带回退URL)
+            String imageUrl = (subCategory.image() != null && !subCategory.image().isEmpty())
+                    ? subCategory.image()
                     : "https://picsum.photos/200/600"; // Fallback URL from Python code
 
-            // 9. 构建最终的 DTO 结构
+            // 8. 构建最终的 DTO 结构
             responseData.add(new HomeProductResponseDto(
-                    subCategory.getCategory().getCategoryId(),   // "id": random_subcategory.category.category_id
-                    subCategory.getCategory().getCategoryName(), // "name": random_subcategory.category.category_name
-                    subCategory.getSubCateName(),                // "saleInfo": random_subcategory.sub_cate_name
+                    category.id(),                               // "id": random_subcategory.category.category_id
+                    category.name(),                             // "name": random_subcategory.category.category_name
+                    subCategory.name(),                          // "saleInfo": random_subcategory.sub_cate_name
                     imageUrl,                                    // "picture": ...
                     goodsList                                    // "goods": [...]
             ));
@@ -296,55 +413,59 @@ public class ProductServiceImpl implements ProductService {
 
     @Override
     public List<RecommendCategoryResponseDto> getRecommendCategories() {
-        // 1. 获取前7个启用状态的主分类 (Python: [7:])
-        List<Category> categories = categoryDao.findActiveCategories(7);
+        // 1. 获取前7个启用状态的主分类 (Python: [7:])，分类数据来自内存分类树
+        List<CategoryTree.CategoryNode> categories = categoryTree.activeCategories().stream().limit(7).collect(Collectors.toList());
 
         List<RecommendCategoryResponseDto> categoryList = new ArrayList<>();
 
-        // 2. 遍历主分类
-        for (Category category : categories) {
+        // 2. 遍历主分类，先为每个主分类随机选出 2 个子分类 (Python: order_by('?')[:2])
+        Map<CategoryTree.CategoryNode, List<CategoryTree.SubCategoryNode>> randomSubCatsByCategory = new LinkedHashMap<>();
+        List<String> randomSubCatIds = new ArrayList<>();
+        for (CategoryTree.CategoryNode category : categories) {
 
-            // 3. 获取该主分类下的所有启用子分类
-            List<SubCategory> allSubCats = subCategoryDao.findActiveByCategoryId(category.getCategoryId());
+            // 3. 获取该主分类下的所有启用子分类 (复制后再洗牌)
+            List<CategoryTree.SubCategoryNode> allSubCats = new ArrayList<>(categoryTree.activeChildren(category.id()));
 
             // 4. 随机洗牌 (Python: order_by('?'))
             Collections.shuffle(allSubCats);
 
             // 5. 取前 2 个 (Python: [:2])
-            List<SubCategory> randomSubCats = allSubCats.stream().limit(2).collect(Collectors.toList());
+            List<CategoryTree.SubCategoryNode> randomSubCats = allSubCats.stream().limit(2).collect(Collectors.toList());
+            randomSubCatsByCategory.put(category, randomSubCats);
+            randomSubCats.forEach(sub -> randomSubCatIds.add(sub.id()));
+        }
+
+        // 每个子分类随机抽取 4 个商品 (Python: order_by('?')[:4])，所有商品用一条 IN 查询加载
+        Map<String, List<ProductListRow>> sampled = productSamplingService.sampleActiveBySubCategories(randomSubCatIds, 4);
+
+        for (Map.Entry<CategoryTree.CategoryNode, List<CategoryTree.SubCategoryNode>> entry : randomSubCatsByCategory.entrySet()) {
+            CategoryTree.CategoryNode category = entry.getKey();
+            List<CategoryTree.SubCategoryNode> randomSubCats = entry.getValue();
 
             List<RecommendSubCategoryDto> subListDto = new ArrayList<>();
             List<RecommendProductDto> allProductsDto = new ArrayList<>();
 
             // 6. 遍历 2 个随机子分类
-            for (SubCategory sub : randomSubCats) {
+            for (CategoryTree.SubCategoryNode sub : randomSubCats) {
                 // 7. 构造子分类 DTO
-                subListDto.add(new RecommendSubCategoryDto(sub.getSubCateId(), sub.getSubCateName()));
-
-                // 8. 获取该子分类下的所有启用商品
-                // (我们重用上一步为你创建的 findActiveBySubCategoryForRandom 方法)
-                List<Product> products = productDao.findActiveBySubCategoryForRandom(sub.getSubCateId());
-
-                // 9. 随机洗牌
-                Collections.shuffle(products);
+                subListDto.add(new RecommendSubCategoryDto(sub.id(), sub.name()));
 
-                // 10. 取前 4 个 (Python: [:4]) 并添加到总商品列表
-                products.stream()
-                        .limit(4)
-                        .forEach(product -> {
+                // 8. 添加该子分类抽中的商品到总商品列表
+                sampled.get(sub.id())
+                        .forEach(row -> {
                             allProductsDto.add(new RecommendProductDto(
-                                    product.getProductId(),
-                                    product.getProductName(),
-                                    product.getPrice(),
-                                    (product.getImages() != null && !product.getImages().isEmpty()) ? product.getImages().get(0) : null
+                                    row.productId(),
+                                    row.productName(),
+                                    row.price(),
+                                    row.image()
                             ));
                         });
             }
 
-            // 11. 构造主分类 DTO
+            // 9. 构造主分类 DTO
             categoryList.add(new RecommendCategoryResponseDto(
-                    category.getCategoryId(),
-                    category.getCategoryName(),
+                    category.id(),
+                    category.name(),
                     subListDto,   // 'children': sub_list
                     allProductsDto // 'products': all_products
             ));
@@ -1,5 +1,6 @@
 package com.rabbuy.ecommerce.service;
 
+import com.rabbuy.ecommerce.dto.FacetedResult;
 import com.rabbuy.ecommerce.dto.PaginatedResult;
 import com.rabbuy.ecommerce.dto.SubCategoryDto;
 import com.rabbuy.ecommerce.dto.SubCategoryInputDto;
@@ -19,10 +20,11 @@ public interface SubCategoryService {
 
     /**
      * 获取二级分类下的商品（分页）
+     * @param cursor 上一页返回的 nextCursor；非空时按游标续页并忽略 page
      */
-    PaginatedResult<SubCategoryProductDto> getSubCategoryProducts(
+    FacetedResult<SubCategoryProductDto> getSubCategoryProducts(
             String subCategoryId, BigDecimal minPrice, BigDecimal maxPrice,
-            String sortField, int page, int pageSize) throws NotFoundException;
+            String sortField, int page, int pageSize, String cursor) throws NotFoundException;
 
     /**
      * 获取所有二级分类（用于管理后台列表）
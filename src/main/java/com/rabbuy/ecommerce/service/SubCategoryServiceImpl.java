@@ -1,22 +1,31 @@
 package com.rabbuy.ecommerce.service;
 
+import com.rabbuy.ecommerce.cache.CategoryTree;
+import com.rabbuy.ecommerce.cache.ResponseCache;
 import com.rabbuy.ecommerce.dao.CategoryDao;
 import com.rabbuy.ecommerce.dao.ProductDao;
 import com.rabbuy.ecommerce.dao.SubCategoryDao;
+import com.rabbuy.ecommerce.dto.FacetedResult;
 import com.rabbuy.ecommerce.dto.PaginatedResult;
+import com.rabbuy.ecommerce.dto.ProductListRow;
+import com.rabbuy.ecommerce.dto.ProductSearchCriteria;
 import com.rabbuy.ecommerce.dto.SubCategoryDto;
 import com.rabbuy.ecommerce.dto.SubCategoryInputDto;
 import com.rabbuy.ecommerce.dto.SubCategoryProductDto;
 import com.rabbuy.ecommerce.entity.Category;
-import com.rabbuy.ecommerce.entity.Product;
 import com.rabbuy.ecommerce.entity.SubCategory;
+import com.rabbuy.ecommerce.search.ProductSearchHits;
+import com.rabbuy.ecommerce.search.ProductSearchIndex;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.NotFoundException;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @ApplicationScoped
@@ -28,49 +37,69 @@ public class SubCategoryServiceImpl implements SubCategoryService {
     private CategoryDao categoryDao;
     @Inject
     private ProductDao productDao;
+    @Inject
+    private ProductSearchIndex productSearchIndex;
+    @Inject
+    private HomeFeedService homeFeedService;
+    @Inject
+    private ResponseCache responseCache;
+    @Inject
+    private CategoryTree categoryTree;
 
     @Override
-    @Transactional
     public SubCategoryDto getSubCategoryDetails(String id) throws NotFoundException {
-        SubCategory subCategory = subCategoryDao.findById(id)
+        CategoryTree.SubCategoryNode subCategory = categoryTree.subCategory(id)
                 .orElseThrow(() -> new NotFoundException("Sub-category not found"));
-        return SubCategoryDto.fromEntity(subCategory);
+        return toDto(subCategory);
+    }
+
+    /**
+     * 辅助方法：分类树节点转换为 DTO (父分类名称同样从分类树读取)
+     */
+    private SubCategoryDto toDto(CategoryTree.SubCategoryNode node) {
+        String categoryName = categoryTree.category(node.categoryId())
+                .map(CategoryTree.CategoryNode::name)
+                .orElse(null);
+        return new SubCategoryDto(node.id(), node.name(), node.status(), node.image(), node.categoryId(), categoryName);
     }
 
     @Override
-    public PaginatedResult<SubCategoryProductDto> getSubCategoryProducts(
+    public FacetedResult<SubCategoryProductDto> getSubCategoryProducts(
             String subCategoryId, BigDecimal minPrice, BigDecimal maxPrice,
-            String sortField, int page, int pageSize) throws NotFoundException {
+            String sortField, int page, int pageSize, String cursor) throws NotFoundException {
 
-        // 1. 验证 SubCategory 是否存在
-        if (!subCategoryDao.findById(subCategoryId).isPresent()) {
+        // 1. 验证 SubCategory 是否存在 (内存分类树)
+        if (!categoryTree.subCategoryExists(subCategoryId)) {
             throw new NotFoundException("Subcategory not found");
         }
 
-        // 2. 调用 ProductDao 中已有的方法
-        //
-        PaginatedResult<Product> entityResult = productDao.findActiveBySubCategory(
-                subCategoryId, minPrice, maxPrice, sortField, page, pageSize
-        );
+        // 2. 过滤、排序、分页和分面 (价格区间 / 评分) 由搜索索引完成
+        ProductSearchHits hits = productSearchIndex.search(new ProductSearchCriteria(
+                null, null, subCategoryId, minPrice, maxPrice, sortField, page, pageSize, cursor
+        ));
 
-        // 3. 将 PaginatedResult<Product> 转换为 PaginatedResult<SubCategoryProductDto>
-        List<SubCategoryProductDto> dtoList = entityResult.data().stream()
-                .map(SubCategoryProductDto::fromEntity) // 使用新 DTO 的工厂方法
-                .collect(Collectors.toList());
+        // 3. 只查询当前页商品的列表字段，并保持索引给出的顺序
+        Map<String, ProductListRow> rowMap = new HashMap<>();
+        for (ProductListRow row : productDao.findActiveListRowsByIds(hits.productIds())) {
+            rowMap.put(row.productId(), row);
+        }
+        List<SubCategoryProductDto> dtoList = new ArrayList<>(hits.productIds().size());
+        for (String productId : hits.productIds()) {
+            ProductListRow row = rowMap.get(productId);
+            if (row != null) {
+                dtoList.add(SubCategoryProductDto.fromRow(row));
+            }
+        }
 
-        return new PaginatedResult<>(
-                dtoList,
-                entityResult.totalItems(),
-                entityResult.currentPage(),
-                entityResult.totalPages()
-        );
+        int totalPages = (int) Math.ceil((double) hits.totalItems() / pageSize);
+        return new FacetedResult<>(dtoList, hits.totalItems(), page, totalPages, hits.facets(), hits.nextCursor());
     }
 
     @Override
     public List<SubCategoryDto> getAllSubCategories() {
         //
-        return subCategoryDao.findAll().stream()
-                .map(SubCategoryDto::fromEntity)
+        return categoryTree.allSubCategories().stream()
+                .map(this::toDto)
                 .collect(Collectors.toList());
     }
 
@@ -109,6 +138,9 @@ public class SubCategoryServiceImpl implements SubCategoryService {
         newSubCategory.setStatus(dto.status() != null ? dto.status() : "0"); // 默认 '0'
 
         subCategoryDao.save(newSubCategory);
+        categoryTree.putSubCategory(newSubCategory);
+        homeFeedService.invalidate();
+        responseCache.invalidatePrefix(ResponseCache.CATEGORY_ALL);
         return SubCategoryDto.fromEntity(newSubCategory);
     }
 
@@ -135,6 +167,11 @@ public class SubCategoryServiceImpl implements SubCategoryService {
         }
 
         SubCategory updated = subCategoryDao.update(subCategory);
+        categoryTree.putSubCategory(updated);
+        homeFeedService.invalidate();
+        // 商品详情中也包含子分类名称
+        responseCache.invalidatePrefix(ResponseCache.CATEGORY_ALL);
+        responseCache.invalidatePrefix(ResponseCache.PRODUCT_DETAIL);
         return SubCategoryDto.fromEntity(updated);
     }
 
@@ -148,13 +185,15 @@ public class SubCategoryServiceImpl implements SubCategoryService {
 
         // 检查是否有商品关联
         //
-        PaginatedResult<Product> products = productDao.findActiveBySubCategory(id, null, null, "default", 1, 1);
-        if (products.totalItems() > 0) {
+        if (productDao.existsActiveBySubCategory(id)) {
             throw new IllegalStateException("Cannot delete subcategory with associated products");
         }
 
         // DAO 的 deleteById 需要一个实体，我们直接用 ID 查找
         SubCategory subCategory = subCategoryDao.findById(id).get();
         subCategoryDao.delete(subCategory);
+        categoryTree.removeSubCategory(id);
+        homeFeedService.invalidate();
+        responseCache.invalidatePrefix(ResponseCache.CATEGORY_ALL);
     }
 }
\ No newline at end of file
@@ -1,9 +1,7 @@
 package com.rabbuy.ecommerce.service;
 
-import com.rabbuy.ecommerce.dao.CartDao;
 import com.rabbuy.ecommerce.dao.UserDao;
 import com.rabbuy.ecommerce.dto.*; // 导入所有 DTO
-import com.rabbuy.ecommerce.entity.Cart;
 import com.rabbuy.ecommerce.entity.User;
 import jakarta.ejb.Singleton;
 import jakarta.inject.Inject;
@@ -22,8 +20,6 @@ public class UserServiceImpl implements UserService {
     @Inject
     private UserDao userDao;
     @Inject
-    private CartDao cartDao;
-    @Inject
     private PasswordHash passwordHash;
     @Inject
     private TokenService tokenService;
@@ -87,10 +83,7 @@ public class UserServiceImpl implements UserService {
         // 4. 保存 User
         userDao.save(newUser);
 
-        // 5. 创建购物车
-         Cart newCart = new Cart();
-         newCart.setUser(newUser);
-         cartDao.save(newCart);
+        // 5. 购物车不在注册时创建，第一次加入商品时才创建 (CartStore)
 
         // 6. 转换 DTO
         UserResponseDto userDtoResponse = toResponseDto(newUser);
@@ -0,0 +1,263 @@
+package com.rabbuy.ecommerce.cart;
+
+import com.rabbuy.ecommerce.dao.CartDao;
+import com.rabbuy.ecommerce.dto.CartContentRow;
+import com.rabbuy.ecommerce.dto.CartItem;
+import com.rabbuy.ecommerce.dto.CartProductsUpdate;
+import com.rabbuy.ecommerce.entity.Cart;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindCartStoreTest {
+
+    private InMemoryCartDao cartDao;
+    private WriteBehindCartStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        cartDao = new InMemoryCartDao();
+        cartDao.insert("u1", "cart1", 3, new CartItem("p1", 1));
+        cartDao.insert("u2", "cart2", 1);
+        store = newStore(cartDao, 100);
+    }
+
+    @Test
+    void editsStayInMemoryUntilFlush() {
+        store.add("u1", "p2", 2, null);
+        store.setCount("u1", "p1", 5, null);
+
+        assertEquals(0, cartDao.batches.size());
+        assertEquals(List.of(new CartItem("p1", 5), new CartItem("p2", 2)), store.find("u1").orElseThrow().products());
+        assertEquals(5, store.find("u1").orElseThrow().version());
+        assertEquals(List.of(new CartItem("p1", 1)), cartDao.rows.get("u1").products());
+    }
+
+    @Test
+    void flushWritesConsecutiveEditsAsOneUpdate() {
+        store.add("u1", "p2", 2, null);
+        store.add("u1", "p2", 1, null);
+        store.remove("u1", "p1", null);
+
+        store.flushAndEvict();
+
+        assertEquals(1, cartDao.batches.size());
+        assertEquals(1, cartDao.batches.get(0).size());
+        CartProductsUpdate update = cartDao.batches.get(0).get(0);
+        assertEquals(3, update.expectedVersion());
+        assertEquals(6, update.newVersion());
+        assertEquals(List.of(new CartItem("p2", 3)), cartDao.rows.get("u1").products());
+        assertEquals(6, cartDao.rows.get("u1").version());
+    }
+
+    @Test
+    void cleanCartsAreNotWritten() {
+        store.find("u1");
+        store.add("u2", "p1", 1, null);
+        store.add("u2", "p1", -1, null);
+        store.remove("u2", "p1", null);
+
+        store.flushAndEvict();
+        store.flushAndEvict();
+
+        assertEquals(1, cartDao.batches.size());
+        assertEquals("cart2", cartDao.batches.get(0).get(0).cartId());
+    }
+
+    @Test
+    void editsDoNotEvictOnTheRequestThread() throws Exception {
+        store = newStore(cartDao, 1);
+        store.add("u1", "p2", 1, null);
+        store.add("u2", "p2", 1, null);
+
+        // 超出容量，但请求线程不写数据库
+        assertEquals(0, cartDao.batches.size());
+        assertEquals(2, cachedCarts(store).size());
+    }
+
+    @Test
+    void overCapacityCartsAreFlushedBeforeEviction() throws Exception {
+        store = newStore(cartDao, 1);
+        store.add("u1", "p2", 1, null);
+        Thread.sleep(5);
+        store.add("u2", "p2", 1, null);
+
+        store.flushAndEvict();
+
+        // 最久未使用的 u1 被淘汰，修改已写回
+        assertEquals(List.of("u2"), List.copyOf(cachedCarts(store).keySet()));
+        assertEquals(List.of(new CartItem("p1", 1), new CartItem("p2", 1)), cartDao.rows.get("u1").products());
+        assertEquals(List.of(new CartItem("p1", 1), new CartItem("p2", 1)), store.find("u1").orElseThrow().products());
+    }
+
+    @Test
+    void conflictReplaysPendingEditsOnTheLatestRow() {
+        store.add("u1", "p2", 2, null);
+        store.add("u1", "p1", 1, null);
+        long versionSeenByClient = store.find("u1").orElseThrow().version();
+        // 其他实例在写回之前修改了数据库中的购物车
+        cartDao.insert("u1", "cart1", 7, new CartItem("p1", 4), new CartItem("p9", 1));
+
+        store.flushAndEvict();
+
+        // 第一次写回冲突：以数据库为准重放修改，版本号超过客户端见过的版本
+        CartContentRow rebased = store.find("u1").orElseThrow();
+        assertEquals(List.of(new CartItem("p1", 5), new CartItem("p9", 1), new CartItem("p2", 2)), rebased.products());
+        assertTrue(rebased.version() > versionSeenByClient);
+        assertEquals(7, cartDao.rows.get("u1").version());
+
+        // 下一次写回以数据库中的版本为条件
+        store.flushAndEvict();
+
+        assertEquals(rebased.products(), cartDao.rows.get("u1").products());
+        assertEquals(rebased.version(), cartDao.rows.get("u1").version());
+    }
+
+    @Test
+    void replayedReplaceOverridesTheConcurrentChange() {
+        store.replace("u1", List.of(new CartItem("p3", 1)), null);
+        store.add("u1", "p1", 1, null);
+        cartDao.insert("u1", "cart1", 9, new CartItem("p5", 2));
+
+        store.flushAndEvict();
+        store.flushAndEvict();
+
+        // replace 覆盖了其他实例的修改，之后的 add 在其结果上重放
+        assertEquals(List.of(new CartItem("p3", 1), new CartItem("p1", 1)), cartDao.rows.get("u1").products());
+    }
+
+    @Test
+    void editsAfterTheSnapshotAreKeptForTheNextFlush() {
+        store.add("u1", "p2", 1, null);
+        cartDao.beforeBatch = () -> store.add("u1", "p3", 1, null);
+
+        store.flushAndEvict();
+        cartDao.beforeBatch = null;
+
+        assertEquals(List.of(new CartItem("p1", 1), new CartItem("p2", 1)), cartDao.rows.get("u1").products());
+        store.flushAndEvict();
+        assertEquals(List.of(new CartItem("p1", 1), new CartItem("p2", 1), new CartItem("p3", 1)),
+                cartDao.rows.get("u1").products());
+        assertEquals(5, cartDao.rows.get("u1").version());
+    }
+
+    @Test
+    void failedBatchIsRetriedOnTheNextFlush() {
+        store.add("u1", "p2", 1, null);
+        cartDao.failNextBatch = true;
+
+        store.flushAndEvict();
+        assertEquals(List.of(new CartItem("p1", 1)), cartDao.rows.get("u1").products());
+
+        store.flushAndEvict();
+        assertEquals(List.of(new CartItem("p1", 1), new CartItem("p2", 1)), cartDao.rows.get("u1").products());
+    }
+
+    // --- 测试工具 ---
+
+    private static WriteBehindCartStore newStore(CartDao cartDao, int maxEntries) throws Exception {
+        WriteBehindCartStore store = new WriteBehindCartStore();
+        set(store, "cartDao", cartDao);
+        set(store, "maxEntries", maxEntries);
+        set(store, "idleSeconds", 3600L);
+        set(store, "batchSize", 200);
+        return store;
+    }
+
+    private static void set(Object target, String field, Object value) throws Exception {
+        Field f = target.getClass().getDeclaredField(field);
+        f.setAccessible(true);
+        f.set(target, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, ?> cachedCarts(WriteBehindCartStore store) throws Exception {
+        Field f = WriteBehindCartStore.class.getDeclaredField("carts");
+        f.setAccessible(true);
+        return (Map<String, ?>) f.get(store);
+    }
+
+    /**
+     * 只实现 write-behind 用到的方法，按版本号条件更新的语义与 CartDaoImpl 一致
+     */
+    private static final class InMemoryCartDao implements CartDao {
+
+        final Map<String, CartContentRow> rows = new HashMap<>(); // userId -> 行
+        final List<List<CartProductsUpdate>> batches = new ArrayList<>();
+        Runnable beforeBatch;
+        boolean failNextBatch;
+
+        void insert(String userId, String cartId, long version, CartItem... items) {
+            rows.put(userId, new CartContentRow(cartId, version, List.of(items), OffsetDateTime.now(), OffsetDateTime.now()));
+        }
+
+        @Override
+        public Optional<CartContentRow> findContentByUserId(String userId) {
+            CartContentRow row = rows.get(userId);
+            return row == null ? Optional.empty()
+                    : Optional.of(new CartContentRow(row.cartId(), row.version(), CartEdits.copyOf(row.products()),
+                    row.createdTime(), row.updatedTime()));
+        }
+
+        @Override
+        public List<String> updateProductsBatch(List<CartProductsUpdate> updates) {
+            if (beforeBatch != null) {
+                beforeBatch.run();
+            }
+            if (failNextBatch) {
+                failNextBatch = false;
+                throw new IllegalStateException("database unavailable");
+            }
+            batches.add(List.copyOf(updates));
+            List<String> conflicts = new ArrayList<>();
+            for (CartProductsUpdate update : updates) {
+                Map.Entry<String, CartContentRow> entry = rows.entrySet().stream()
+                        .filter(e -> e.getValue().cartId().equals(update.cartId()))
+                        .findFirst().orElseThrow();
+                CartContentRow row = entry.getValue();
+                if (row.version() != update.expectedVersion()) {
+                    conflicts.add(update.cartId());
+                    continue;
+                }
+                entry.setValue(new CartContentRow(row.cartId(), update.newVersion(), CartEdits.copyOf(update.products()),
+                        row.createdTime(), OffsetDateTime.now()));
+            }
+            return conflicts;
+        }
+
+        @Override
+        public boolean updateProductsIfVersion(String cartId, List<CartItem> products, long expectedVersion) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Optional<Cart> findById(String cartId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void createForUser(String userId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Cart update(Cart cart) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void delete(Cart cart) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.rabbuy.ecommerce.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PageCursorTest {
+
+    @Test
+    void decodesWhatWasEncoded() {
+        String token = PageCursor.encode("price_asc", "12.50", "2024-01-01T00:00Z", "p1");
+
+        assertArrayEquals(new String[]{"price_asc", "12.50", "2024-01-01T00:00Z", "p1"}, PageCursor.decode(token, 4));
+    }
+
+    @Test
+    void nullPartsRoundTripAsNull() {
+        String token = PageCursor.encode(null, "p1", null);
+
+        assertArrayEquals(new String[]{null, "p1", null}, PageCursor.decode(token, 3));
+    }
+
+    @Test
+    void tokenIsUrlSafe() {
+        String token = PageCursor.encode("????", ">>>>", "中文");
+
+        assertArrayEquals(new String[]{"????", ">>>>", "中文"}, PageCursor.decode(token, 3));
+        for (char c : token.toCharArray()) {
+            if (!(Character.isLetterOrDigit(c) || c == '-' || c == '_')) {
+                throw new AssertionError("Unexpected character in cursor: " + c);
+            }
+        }
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("not base64!", 1));
+        // 排序键个数不一致 (例如换了排序方式后沿用旧令牌)
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(PageCursor.encode("a", "b"), 3));
+        // 版本号不一致
+        String otherVersion = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("2\u001Fa".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(otherVersion, 1));
+    }
+}
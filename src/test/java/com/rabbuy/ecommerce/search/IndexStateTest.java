@@ -0,0 +1,151 @@
+package com.rabbuy.ecommerce.search;
+
+import com.rabbuy.ecommerce.dto.ProductIndexRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndexStateTest {
+
+    private static final IndexState.Filter NO_FILTER = new IndexState.Filter(null, null, null, null);
+
+    private IndexState state;
+
+    @BeforeEach
+    void setUp() {
+        state = new IndexState(0);
+        // 两个主分类：数码 (耳机、手机两个子分类) 和图书
+        state.put(row("p1", "蓝牙耳机", "降噪", "99.00", 4.5, "s1", "耳机", "c1", "数码"));
+        state.put(row("p2", "有线耳机", "入门款 蓝牙转接头", "49.99", 3.0, "s1", "耳机", "c1", "数码"));
+        state.put(row("p3", "智能手机", "支持蓝牙耳机", "2999.00", 4.8, "s2", "手机", "c1", "数码"));
+        state.put(row("p4", "Java 编程", "入门教程", "50.00", 2.0, "s3", "编程", "c2", "图书"));
+    }
+
+    @Test
+    void matchesOnlyDocumentsContainingAllTerms() {
+        assertEquals(List.of("p1", "p3"), ids(state.search(SearchTokenizer.tokenizeQuery("蓝牙耳机"), NO_FILTER)));
+        assertEquals(List.of("p4"), ids(state.search(SearchTokenizer.tokenizeQuery("java 入门"), NO_FILTER)));
+        assertTrue(state.search(SearchTokenizer.tokenizeQuery("不存在"), NO_FILTER).matches().isEmpty());
+    }
+
+    @Test
+    void emptyQueryMatchesEveryLiveDocumentWithZeroScore() {
+        IndexState.Result result = state.search(List.of(), NO_FILTER);
+
+        assertEquals(List.of("p1", "p2", "p3", "p4"), ids(result));
+        assertTrue(result.matches().stream().allMatch(m -> m.score() == 0));
+    }
+
+    @Test
+    void nameMatchesScoreHigherThanDescriptionMatches() {
+        // p1 的名称包含 "蓝牙"，p2 只在描述中包含
+        IndexState.Result result = state.search(SearchTokenizer.tokenizeQuery("蓝牙"), NO_FILTER);
+
+        assertEquals(3, result.matches().size());
+        assertTrue(score(result, "p1") > score(result, "p2"));
+        assertTrue(score(result, "p2") > 0);
+    }
+
+    @Test
+    void rarerTermsWeighMore() {
+        // "降噪" 只出现在一个文档中，"耳机" 出现在三个文档中
+        double rare = score(state.search(SearchTokenizer.tokenizeQuery("降噪"), NO_FILTER), "p1");
+        double common = score(state.search(SearchTokenizer.tokenizeQuery("耳机"), NO_FILTER), "p1");
+
+        assertTrue(rare > common);
+    }
+
+    @Test
+    void facetsIgnoreTheirOwnFilter() {
+        IndexState.Filter inSubCategory = new IndexState.Filter("c1", "s1", null, null);
+        IndexState.Result result = state.search(List.of(), inSubCategory);
+
+        assertEquals(List.of("p1", "p2"), ids(result));
+        // 主分类计数不受主分类过滤影响，子分类计数不受子分类过滤影响 (但受主分类过滤影响)
+        assertEquals(3, result.categoryCounts()[state.categories().find("c1")]);
+        assertEquals(1, result.categoryCounts()[state.categories().find("c2")]);
+        assertEquals(2, result.subCategoryCounts()[state.subCategories().find("s1")]);
+        assertEquals(1, result.subCategoryCounts()[state.subCategories().find("s2")]);
+        assertEquals(0, result.subCategoryCounts()[state.subCategories().find("s3")]);
+    }
+
+    @Test
+    void priceFacetBucketsPutEdgesOnTheRight() {
+        IndexState.Result result = state.search(List.of(), NO_FILTER);
+
+        // [0,50) [50,100) [100,200) [200,500) [500,1000) [1000,2000) [2000,5000) [5000,+∞)
+        assertArrayEquals(new int[]{1, 2, 0, 0, 0, 0, 1, 0}, result.priceCounts());
+    }
+
+    @Test
+    void priceFilterIsInclusiveAndExcludedFromPriceFacet() {
+        IndexState.Filter filter = new IndexState.Filter(null, null, 4_999L, 9_900L);
+        IndexState.Result result = state.search(List.of(), filter);
+
+        assertEquals(List.of("p1", "p2", "p4"), ids(result));
+        assertArrayEquals(new int[]{1, 2, 0, 0, 0, 0, 1, 0}, result.priceCounts());
+        // 其他维度受价格过滤影响
+        assertEquals(2, result.categoryCounts()[state.categories().find("c1")]);
+    }
+
+    @Test
+    void ratingFacetCountsAtLeastEachThreshold() {
+        IndexState.Result result = state.search(List.of(), NO_FILTER);
+
+        // >= 4, >= 3, >= 2, >= 1
+        assertArrayEquals(new int[]{2, 3, 4, 4}, result.ratingCounts());
+    }
+
+    @Test
+    void unknownCategoryMatchesNothing() {
+        IndexState.Result result = state.search(List.of(), new IndexState.Filter("missing", null, null, null));
+
+        assertTrue(result.matches().isEmpty());
+        assertEquals(3, result.categoryCounts()[state.categories().find("c1")]);
+    }
+
+    @Test
+    void updateReplacesTheOldDocument() {
+        state.put(row("p1", "头戴式耳机", "降噪", "199.00", 4.5, "s1", "耳机", "c1", "数码"));
+
+        assertEquals(List.of("p3"), ids(state.search(SearchTokenizer.tokenizeQuery("蓝牙耳机"), NO_FILTER)));
+        assertEquals(List.of("p1"), ids(state.search(SearchTokenizer.tokenizeQuery("头戴"), NO_FILTER)));
+        assertEquals(4, state.liveDocs());
+        assertEquals(1, state.deadDocs());
+    }
+
+    @Test
+    void removedDocumentsDisappearFromResultsAndFacets() {
+        state.remove("p4");
+
+        assertTrue(state.search(SearchTokenizer.tokenizeQuery("java"), NO_FILTER).matches().isEmpty());
+        assertEquals(0, state.search(List.of(), NO_FILTER).categoryCounts()[state.categories().find("c2")]);
+        assertNull(state.row("p4"));
+        assertEquals(3, state.liveDocs());
+    }
+
+    private static ProductIndexRow row(String id, String name, String desc, String price, double rating,
+                                       String subCategoryId, String subCategoryName, String categoryId, String categoryName) {
+        return new ProductIndexRow(id, name, desc, new BigDecimal(price), rating, null,
+                subCategoryId, subCategoryName, categoryId, categoryName);
+    }
+
+    private static List<String> ids(IndexState.Result result) {
+        return result.matches().stream().map(m -> m.row().productId()).sorted().toList();
+    }
+
+    private static double score(IndexState.Result result, String productId) {
+        return result.matches().stream()
+                .filter(m -> m.row().productId().equals(productId))
+                .findFirst()
+                .orElseThrow()
+                .score();
+    }
+}
@@ -0,0 +1,99 @@
+package com.rabbuy.ecommerce.search;
+
+import com.rabbuy.ecommerce.dto.ProductIndexRow;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductSearchIndexTest {
+
+    @Test
+    void selectTopReturnsTheFirstLimitInSortedOrder() {
+        List<IndexState.Match> matches = shuffled(100);
+        Comparator<IndexState.Match> comparator = ProductSearchIndex.buildComparator("price_asc");
+
+        List<IndexState.Match> top = ProductSearchIndex.selectTop(matches, comparator, null, 5);
+
+        assertEquals(List.of("p000", "p001", "p002", "p003", "p004"), ids(top));
+    }
+
+    @Test
+    void selectTopStartsAfterTheCursor() {
+        List<IndexState.Match> matches = shuffled(100);
+        Comparator<IndexState.Match> comparator = ProductSearchIndex.buildComparator("price_desc");
+
+        List<IndexState.Match> first = ProductSearchIndex.selectTop(matches, comparator, null, 10);
+        List<IndexState.Match> second = ProductSearchIndex.selectTop(matches, comparator, first.get(9), 10);
+
+        assertEquals("p099", first.get(0).row().productId());
+        assertEquals("p089", second.get(0).row().productId());
+        assertEquals("p080", second.get(9).row().productId());
+    }
+
+    @Test
+    void pagingWithCursorsVisitsEveryMatchExactlyOnce() {
+        List<IndexState.Match> matches = shuffled(53);
+        Comparator<IndexState.Match> comparator = ProductSearchIndex.buildComparator("default");
+
+        List<String> visited = new ArrayList<>();
+        IndexState.Match after = null;
+        while (true) {
+            List<IndexState.Match> page = ProductSearchIndex.selectTop(matches, comparator, after, 10);
+            if (page.isEmpty()) {
+                break;
+            }
+            visited.addAll(ids(page));
+            after = page.get(page.size() - 1);
+        }
+
+        List<String> expected = ids(matches.stream().sorted(comparator).toList());
+        assertEquals(expected, visited);
+    }
+
+    @Test
+    void selectTopWithFewerMatchesThanLimitReturnsAll() {
+        List<IndexState.Match> top = ProductSearchIndex.selectTop(shuffled(3), ProductSearchIndex.buildComparator("price_asc"), null, 10);
+
+        assertEquals(List.of("p000", "p001", "p002"), ids(top));
+        assertTrue(ProductSearchIndex.selectTop(List.of(), ProductSearchIndex.buildComparator(null), null, 10).isEmpty());
+    }
+
+    @Test
+    void equalSortKeysAreOrderedByScoreThenId() {
+        IndexState.Match low = match("b", "10.00", 1.0);
+        IndexState.Match high = match("c", "10.00", 2.0);
+        IndexState.Match sameScore = match("a", "10.00", 1.0);
+
+        List<IndexState.Match> top = ProductSearchIndex.selectTop(List.of(low, high, sameScore),
+                ProductSearchIndex.buildComparator("price_asc"), null, 3);
+
+        assertEquals(List.of("c", "a", "b"), ids(top));
+    }
+
+    // 价格与序号一致 (p000 最便宜)，得分与价格相反
+    private static List<IndexState.Match> shuffled(int n) {
+        List<IndexState.Match> matches = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            matches.add(match(String.format("p%03d", i), i + ".00", n - i));
+        }
+        Collections.shuffle(matches, new Random(42));
+        return matches;
+    }
+
+    private static IndexState.Match match(String id, String price, double score) {
+        return new IndexState.Match(new ProductIndexRow(id, id, null, new BigDecimal(price), null, null,
+                null, null, null, null), score);
+    }
+
+    private static List<String> ids(List<IndexState.Match> matches) {
+        return matches.stream().map(m -> m.row().productId()).toList();
+    }
+}
@@ -0,0 +1,87 @@
+package com.rabbuy.ecommerce.search;
+
+import com.rabbuy.ecommerce.dto.ProductIndexRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class RecommendationModelTest {
+
+    private RecommendationModel model;
+
+    @BeforeEach
+    void setUp() {
+        model = new RecommendationModel();
+        model.put(row("phone", "智能手机", "s-phone", "c-digital"));
+        model.put(row("case", "手机壳", "s-accessory", "c-digital"));
+        model.put(row("charger", "快充充电器", "s-accessory", "c-digital"));
+        model.put(row("cable", "数据线", "s-accessory", "c-digital"));
+        model.put(row("novel", "长篇小说", "s-novel", "c-book"));
+    }
+
+    @Test
+    void coPurchasedProductsRankFirst() {
+        model.addBasket(List.of("phone", "charger"));
+        model.addBasket(List.of("phone", "charger"));
+        model.addBasket(List.of("phone", "cable"));
+
+        String[] similar = model.topK("phone", 10);
+
+        assertEquals("charger", similar[0]);
+        assertEquals("cable", similar[1]);
+    }
+
+    @Test
+    void sharedNameTermsAndCategoryScoreWithoutPurchases() {
+        // 手机壳与智能手机共享 "手机"；同主分类的其他商品只有主分类得分
+        assertEquals("case", model.topK("phone", 10)[0]);
+    }
+
+    @Test
+    void sameSubCategoryOutranksUnrelatedProducts() {
+        assertArrayEquals(new String[]{"cable", "charger"}, model.topK("case", 2));
+    }
+
+    @Test
+    void unrelatedProductsAreNotRecommended() {
+        assertEquals(0, model.topK("novel", 10).length);
+    }
+
+    @Test
+    void resultIsLimitedToK() {
+        assertEquals(1, model.topK("case", 1).length);
+    }
+
+    @Test
+    void removedProductsAreNeitherRecommendedNorScored() {
+        model.addBasket(List.of("phone", "charger"));
+        model.remove("charger");
+
+        assertFalse(List.of(model.topK("phone", 10)).contains("charger"));
+        assertEquals(0, model.topK("charger", 10).length);
+    }
+
+    @Test
+    void coPurchasesSurviveRelisting() {
+        model.addBasket(List.of("phone", "novel"));
+        model.remove("novel");
+        model.put(row("novel", "长篇小说", "s-novel", "c-book"));
+
+        assertEquals("novel", model.topK("phone", 10)[0]);
+    }
+
+    @Test
+    void unknownProductHasNoRecommendations() {
+        assertEquals(0, model.topK("missing", 10).length);
+    }
+
+    private static ProductIndexRow row(String id, String name, String subCategoryId, String categoryId) {
+        return new ProductIndexRow(id, name, null, BigDecimal.ONE, null, null, subCategoryId, null, categoryId, null);
+    }
+}
@@ -0,0 +1,60 @@
+package com.rabbuy.ecommerce.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchTokenizerTest {
+
+    @Test
+    void splitsLatinWordsAndLowercases() {
+        assertEquals(List.of("iphone", "15", "pro", "max"), SearchTokenizer.tokenizeDocument("iPhone 15-Pro, MAX!"));
+    }
+
+    @Test
+    void documentKeepsDuplicatesForTermFrequency() {
+        assertEquals(List.of("usb", "c", "usb", "a"), SearchTokenizer.tokenizeDocument("USB-C / USB-A"));
+    }
+
+    @Test
+    void documentIndexesCjkUnigramsAndBigrams() {
+        assertEquals(List.of("蓝", "牙", "耳", "机", "蓝牙", "牙耳", "耳机"), SearchTokenizer.tokenizeDocument("蓝牙耳机"));
+    }
+
+    @Test
+    void queryUsesOnlyBigramsForCjkRuns() {
+        assertEquals(List.of("蓝牙", "牙耳", "耳机"), SearchTokenizer.tokenizeQuery("蓝牙耳机"));
+    }
+
+    @Test
+    void queryUsesUnigramForSingleCjkCharacter() {
+        assertEquals(List.of("书"), SearchTokenizer.tokenizeQuery("书"));
+    }
+
+    @Test
+    void mixedScriptsAreSplitAtTheBoundary() {
+        assertEquals(List.of("华为", "mate60", "手机"), SearchTokenizer.tokenizeQuery("华为Mate60手机"));
+    }
+
+    @Test
+    void queryRemovesDuplicatesKeepingOrder() {
+        assertEquals(List.of("red", "shoes"), SearchTokenizer.tokenizeQuery("red shoes RED"));
+    }
+
+    @Test
+    void dropsOverlongTokens() {
+        String noise = "a".repeat(65);
+        assertEquals(List.of("ok"), SearchTokenizer.tokenizeDocument(noise + " ok"));
+        assertEquals(List.of("a".repeat(64)), SearchTokenizer.tokenizeDocument("a".repeat(64)));
+    }
+
+    @Test
+    void emptyInputHasNoTokens() {
+        assertTrue(SearchTokenizer.tokenizeDocument(null).isEmpty());
+        assertTrue(SearchTokenizer.tokenizeQuery("").isEmpty());
+        assertTrue(SearchTokenizer.tokenizeQuery(" ,.!? ").isEmpty());
+    }
+}
@@ -0,0 +1,66 @@
+package com.rabbuy.ecommerce.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductSamplingServiceImplTest {
+
+    private static final String[] IDS = {"a", "b", "c", "d", "e", "f", "g", "h"};
+
+    @Test
+    void drawsKDistinctIdsFromThePool() {
+        for (int run = 0; run < 1_000; run++) {
+            List<String> drawn = ProductSamplingServiceImpl.draw(IDS, 3);
+
+            assertEquals(3, drawn.size());
+            assertEquals(3, new HashSet<>(drawn).size());
+            assertTrue(Set.of(IDS).containsAll(drawn));
+        }
+    }
+
+    @Test
+    void drawingMoreThanThePoolReturnsEveryIdOnce() {
+        List<String> drawn = ProductSamplingServiceImpl.draw(IDS, 20);
+
+        assertEquals(Set.of(IDS), new HashSet<>(drawn));
+        assertEquals(IDS.length, drawn.size());
+    }
+
+    @Test
+    void emptyPoolOrZeroDrawsReturnNothing() {
+        assertTrue(ProductSamplingServiceImpl.draw(new String[0], 4).isEmpty());
+        assertTrue(ProductSamplingServiceImpl.draw(IDS, 0).isEmpty());
+    }
+
+    @Test
+    void doesNotModifyThePool() {
+        String[] pool = IDS.clone();
+        ProductSamplingServiceImpl.draw(pool, 5);
+
+        assertEquals(List.of(IDS), List.of(pool));
+    }
+
+    @Test
+    void everyIdIsEquallyLikelyInEveryPosition() {
+        // 每个位置上每个 ID 的期望次数为 runs / n；容差约为 6 个标准差
+        int runs = 40_000;
+        int[][] counts = new int[2][IDS.length];
+        for (int run = 0; run < runs; run++) {
+            List<String> drawn = ProductSamplingServiceImpl.draw(IDS, 2);
+            counts[0][drawn.get(0).charAt(0) - 'a']++;
+            counts[1][drawn.get(1).charAt(0) - 'a']++;
+        }
+        double expected = (double) runs / IDS.length;
+        for (int[] position : counts) {
+            for (int count : position) {
+                assertTrue(Math.abs(count - expected) < 400, "count " + count + " too far from " + expected);
+            }
+        }
+    }
+}